@@ -0,0 +1,76 @@
+package com.rct.examples;
+
+import com.rct.util.PerformanceMetrics;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures PerformanceMetrics recording throughput as the number of recording threads grows.
+ * Run with an optional measurement time per step in seconds (default 3).
+ */
+public class MetricsRecorderBenchmark {
+
+ private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+ public static void main(String[] args) throws InterruptedException {
+  long seconds = args.length > 0 ? Long.parseLong(args[0]) : 3;
+
+  System.out.println("=== PerformanceMetrics Recorder Throughput ===");
+  System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+  // Warm up so the first step is not measured in the interpreter
+  measure(Runtime.getRuntime().availableProcessors(), 1);
+
+  for (int threads : THREAD_COUNTS) {
+   double opsPerSecond = measure(threads, seconds);
+   System.out.printf("%3d threads: %,14.0f records/s (%,.0f per thread)%n",
+           threads, opsPerSecond, opsPerSecond / threads);
+  }
+ }
+
+ private static double measure(int threads, long seconds) throws InterruptedException {
+  PerformanceMetrics metrics = new PerformanceMetrics();
+  metrics.startTest();
+
+  LongAdder operations = new LongAdder();
+  CountDownLatch start = new CountDownLatch(1);
+  CountDownLatch done = new CountDownLatch(threads);
+  long[] deadline = new long[1];
+
+  for (int t = 0; t < threads; t++) {
+   Thread worker = new Thread(() -> {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long count = 0;
+    try {
+     start.await();
+     while (System.nanoTime() < deadline[0]) {
+      // Batch the clock check so the loop measures recording rather than nanoTime
+      for (int i = 0; i < 256; i++) {
+       long nanos = 200_000 + random.nextInt(50_000_000);
+       boolean success = (i & 31) != 0;
+       metrics.recordRequestNanos(nanos, nanos, success ? 200 : 503, success, success ? null : "Service Unavailable");
+      }
+      count += 256;
+     }
+    } catch (InterruptedException e) {
+     Thread.currentThread().interrupt();
+    } finally {
+     operations.add(count);
+     done.countDown();
+    }
+   });
+   worker.setDaemon(true);
+   worker.start();
+  }
+
+  long begin = System.nanoTime();
+  deadline[0] = begin + seconds * 1_000_000_000L;
+  start.countDown();
+  done.await();
+  long elapsed = System.nanoTime() - begin;
+
+  return operations.sum() * 1_000_000_000.0 / elapsed;
+ }
+}
@@ -20,6 +20,9 @@ public class PerformanceTestExample {
 
   // Example 3: High concurrency test
   runHighConcurrencyTest();
+
+  // Example 4: Open model with a ramped arrival rate
+  runArrivalRateTest();
  }
 
  private static void runSimpleGetTest() {
@@ -99,6 +102,35 @@ public class PerformanceTestExample {
   printResults(result);
  }
 
+ private static void runArrivalRateTest() {
+  System.out.println("\n=== Arrival Rate (Open Model) Load Test ===");
+
+  Map<String, String> headers = new HashMap<>();
+  headers.put("Accept", "application/json");
+
+  LoadTestRunner.LoadTestConfig config = new LoadTestRunner.LoadTestConfig(
+          "https://jsonplaceholder.typicode.com/posts/1",
+          "GET",
+          headers,
+          null,
+          1, // users/requests per user are ignored in the open model
+          1,
+          10, // ramp from start to target RPS over 10 seconds
+          30 // keep arrivals coming for 30 seconds
+  );
+  config.setLoadModel(LoadTestRunner.LoadModel.OPEN);
+  config.setRateProfile(LoadTestRunner.RateProfile.RAMP);
+  config.setStartRps(2);
+  config.setTargetRps(20);
+  config.setArrivalDistribution(LoadTestRunner.ArrivalDistribution.POISSON);
+  config.setMaxInFlight(100);
+
+  LoadTestRunner.LoadTestResult result = LoadTestRunner.runLoadTest(config,
+          new SimpleProgressCallback("Arrival Rate Test"));
+
+  printResults(result);
+ }
+
  private static void printResults(LoadTestRunner.LoadTestResult result) {
   if (result.isCompleted()) {
    System.out.println("✅Test completed successfully");
@@ -3,21 +3,55 @@ package com.rct.manager;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.*;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class CollectionManager {
  private List<Collection> collections;
  private JTree collectionsTree;
  private DefaultTreeModel treeModel;
  private ObjectMapper objectMapper;
+ // Saves run on a background thread; changes within SAVE_DELAY_MS of each other are written once
+ private static final long SAVE_DELAY_MS = 500;
+ private CollectionStore store;
+ // Tree node of each collection, by identity; request nodes are indexed per collection node
+ private final Map<Collection, CollectionTreeNode> collectionNodes = new IdentityHashMap<>();
+ private final AtomicBoolean refreshQueued = new AtomicBoolean();
+ // New collections are shown expanded until this many requests have been expanded in one refresh
+ private static final int EXPAND_NEW_LIMIT = 500;
+ // Lookup index: collection by name, request by collection, method and name, and request and its collection
+ // by request id (the first match in list order wins, as with a scan). The methods of this class keep it
+ // current; refreshTree() marks it stale after changes made directly on the lists and the next lookup rebuilds it.
+ private final Map<String, Collection> collectionsByName = new HashMap<>();
+ private final Map<String, SavedRequest> requestsByKey = new HashMap<>();
+ private final Map<String, SavedRequest> requestsById = new HashMap<>();
+ private final Map<String, Collection> collectionsByRequestId = new HashMap<>();
+ private final Map<String, Integer> nextCollectionSuffix = new HashMap<>();
+ private boolean indexStale = true;
 
  public static class Collection {
  private String name;
  private List<SavedRequest> requests;
+ // Directory in the collection store; assigned when first saved
+ String id;
 
  public Collection() { this.requests = new ArrayList<>(); }
  public Collection(String name) { this.name = name; this.requests = new ArrayList<>(); }
@@ -38,6 +72,11 @@ public class CollectionManager {
  private String headers;
  private String body;
  private String params;
+ // Stable id, assigned when the request is first indexed or saved. While store is set, headers, body
+ // and params are kept there instead of in the fields above and read back on demand.
+ String id;
+ private CollectionStore store;
+ String storedIn;
 
  public SavedRequest() {}
  public SavedRequest(String name, String method, String url, String headers, String body) {
@@ -58,21 +97,44 @@ public class CollectionManager {
  public String getUrl() { return url; }
  public void setUrl(String url) { this.url = url; }
 
- public String getHeaders() { return headers; }
- public void setHeaders(String headers) { this.headers = headers; }
+ public String getHeaders() { return store != null ? store.details(this).headers : headers; }
+ public void setHeaders(String headers) { detach(); this.headers = headers; }
 
- public String getBody() { return body; }
- public void setBody(String body) { this.body = body; }
+ public String getBody() { return store != null ? store.details(this).body : body; }
+ public void setBody(String body) { detach(); this.body = body; }
 
- public String getParams() { return params; }
- public void setParams(String params) { this.params = params; }
+ public String getParams() { return store != null ? store.details(this).params : params; }
+ public void setParams(String params) { detach(); this.params = params; }
+
+ boolean isStoredIn(CollectionStore store, String collectionId) {
+ return this.store == store && collectionId.equals(storedIn);
+ }
+
+ void storeIn(CollectionStore store, String collectionId) {
+ this.store = store;
+ this.storedIn = collectionId;
+ headers = body = params = null;
+ }
+
+ // Takes the details back from the store before one of them changes; the next save writes them again
+ private void detach() {
+ if (store == null) return;
+ CollectionStore.Details details = store.details(this);
+ headers = details.headers;
+ body = details.body;
+ params = details.params;
+ store = null;
+ }
  }
 
  public CollectionManager() {
  collections = new ArrayList<>();
  objectMapper = new ObjectMapper();
+ store = new CollectionStore(java.nio.file.Paths.get(com.rct.util.FileManager.getCollectionsDirectory()), SAVE_DELAY_MS);
  initializeTree();
  loadCollections();
+ // Write a save that is still waiting out its delay
+ Runtime.getRuntime().addShutdownHook(new Thread(store::close, "collections-save"));
  }
 
  private void initializeTree() {
@@ -80,6 +142,21 @@ public class CollectionManager {
  treeModel = new DefaultTreeModel(root);
  collectionsTree = new JTree(treeModel);
  collectionsTree.setRootVisible(false);
+ collectionsTree.setCellRenderer(new CollectionTreeCellRenderer());
+ // Request nodes of a collection are created the first time it is expanded
+ collectionsTree.addTreeWillExpandListener(new TreeWillExpandListener() {
+ @Override
+ public void treeWillExpand(TreeExpansionEvent event) {
+ Object node = event.getPath().getLastPathComponent();
+ if (node instanceof CollectionTreeNode) {
+ loadRequestNodes((CollectionTreeNode) node);
+ }
+ }
+
+ @Override
+ public void treeWillCollapse(TreeExpansionEvent event) {
+ }
+ });
  refreshTree();
  }
 
@@ -87,57 +164,451 @@ public class CollectionManager {
  public List<Collection> getCollections() { return collections; }
 
  public void addCollection(Collection collection) {
+ synchronized (this) {
  collections.add(collection);
- refreshTree();
+ if (!indexStale) indexCollection(collection);
+ }
+ updateTreeLater();
  saveCollections();
  }
 
  public void removeCollection(String name) {
- collections.removeIf(c -> c.getName().equals(name));
- refreshTree();
+ synchronized (this) {
+ for (Iterator<Collection> it = collections.iterator(); it.hasNext(); ) {
+ Collection collection = it.next();
+ if (collection.getName().equals(name)) {
+ it.remove();
+ if (!indexStale) unindexCollection(collection);
+ }
+ }
+ }
+ updateTreeLater();
  saveCollections();
  }
 
  public void removeRequest(String collectionName, String requestName, String method) {
- for (Collection collection : collections) {
- if (collection.getName().equals(collectionName)) {
- collection.getRequests().removeIf(r -> r.getName().equals(requestName) && r.getMethod().equals(method));
- refreshTree();
+ synchronized (this) {
+ Collection collection = findCollection(collectionName);
+ if (collection == null) return;
+ for (Iterator<SavedRequest> it = collection.getRequests().iterator(); it.hasNext(); ) {
+ SavedRequest request = it.next();
+ if (request.getName().equals(requestName) && request.getMethod().equals(method)) {
+ it.remove();
+ unindexRequest(collection, request);
+ }
+ }
+ }
+ updateTreeLater();
+ saveCollections();
+ }
+
+ // Moves request to the end of the named collection
+ public void moveRequest(SavedRequest request, String targetCollectionName) {
+ synchronized (this) {
+ ensureIndex();
+ Collection source = collectionsByRequestId.get(request.id);
+ Collection target = collectionsByName.get(targetCollectionName);
+ if (source == null || target == null) return;
+ source.getRequests().remove(request);
+ unindexRequest(source, request);
+ target.addRequest(request);
+ indexRequest(target, request);
+ }
+ updateTreeLater();
+ saveCollections();
+ }
+
+ public void renameRequest(SavedRequest request, String newName) {
+ synchronized (this) {
+ ensureIndex();
+ Collection collection = collectionsByRequestId.get(request.id);
+ if (collection != null) unindexRequest(collection, request);
+ request.setName(newName);
+ if (collection != null) indexRequest(collection, request);
+ }
+ updateTreeLater();
  saveCollections();
+ }
+
+ // Replaces the request with the same name in the collection, or adds it at the end
+ public void putRequest(Collection collection, SavedRequest request) {
+ synchronized (this) {
+ ensureIndex();
+ List<SavedRequest> requests = collection.getRequests();
+ int index = -1;
+ for (int i = 0; i < requests.size(); i++) {
+ if (requests.get(i).getName().equals(request.getName())) {
+ index = i;
  break;
  }
  }
+ if (index >= 0) {
+ unindexRequest(collection, requests.set(index, request));
+ } else {
+ requests.add(request);
+ }
+ indexRequest(collection, request);
+ }
+ updateTreeLater();
+ saveCollections();
  }
 
- public void refreshTree() {
- SwingUtilities.invokeLater(() -> {
- DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
- root.removeAllChildren();
+ public synchronized Collection findCollection(String name) {
+ ensureIndex();
+ return collectionsByName.get(name);
+ }
 
+ public synchronized SavedRequest findRequest(String collectionName, String method, String requestName) {
+ ensureIndex();
+ return requestsByKey.get(requestKey(collectionName, method, requestName));
+ }
+
+ public synchronized SavedRequest findRequest(String requestId) {
+ ensureIndex();
+ return requestsById.get(requestId);
+ }
+
+ // The request a tree node stands for, if it still exists
+ public SavedRequest findRequest(RequestTreeNode node) {
+ SavedRequest request = node.request != null ? findRequest(node.request.id) : null;
+ return request != null ? request : findRequest(node.getCollectionName(), node.getMethod(), node.getRequestName());
+ }
+
+ private void ensureIndex() {
+ if (!indexStale) return;
+ collectionsByName.clear();
+ requestsByKey.clear();
+ requestsById.clear();
+ collectionsByRequestId.clear();
  for (Collection collection : collections) {
- CollectionTreeNode collectionNode = new CollectionTreeNode(
- "<html><font color='" + com.rct.util.UITheme.ICON_COLLECTION + "'>📁</font> " + collection.getName() + "</html>",
- collection.getName(), null, null);
+ indexCollection(collection);
+ }
+ indexStale = false;
+ }
+
+ private void indexCollection(Collection collection) {
+ collectionsByName.putIfAbsent(collection.getName(), collection);
+ for (SavedRequest request : collection.getRequests()) {
+ indexRequest(collection, request);
+ }
+ }
+
+ private void unindexCollection(Collection collection) {
  for (SavedRequest request : collection.getRequests()) {
- String methodIcon = com.rct.util.UITheme.getMethodIcon(request.getMethod());
- RequestTreeNode requestNode = new RequestTreeNode(
- "<html>" + methodIcon + " " + request.getMethod() + " " + request.getName() + "</html>",
- collection.getName(), request.getMethod(), request.getName());
- collectionNode.add(requestNode);
+ unindexRequest(collection, request);
+ }
+ if (collectionsByName.remove(collection.getName(), collection)) {
+ // Another collection may have the same name
+ for (Collection other : collections) {
+ if (other.getName().equals(collection.getName())) {
+ collectionsByName.put(other.getName(), other);
+ break;
+ }
+ }
+ }
+ }
+
+ private void indexRequest(Collection collection, SavedRequest request) {
+ if (request.id == null) {
+ request.id = CollectionStore.newId();
  }
- root.add(collectionNode);
+ requestsByKey.putIfAbsent(requestKey(collection.getName(), request.getMethod(), request.getName()), request);
+ requestsById.put(request.id, request);
+ collectionsByRequestId.put(request.id, collection);
  }
 
- treeModel.reload();
- expandAllNodes();
- collectionsTree.repaint();
+ private void unindexRequest(Collection collection, SavedRequest request) {
+ if (indexStale) return;
+ requestsById.remove(request.id);
+ collectionsByRequestId.remove(request.id);
+ String key = requestKey(collection.getName(), request.getMethod(), request.getName());
+ if (requestsByKey.remove(key, request)) {
+ // Another request in the collection may have the same method and name
+ for (SavedRequest other : collection.getRequests()) {
+ if (other != request && requestKey(collection.getName(), other.getMethod(), other.getName()).equals(key)) {
+ requestsByKey.put(key, other);
+ break;
+ }
+ }
+ }
+ }
+
+ private static String requestKey(String collectionName, String method, String requestName) {
+ return collectionName + '\0' + method + '\0' + requestName;
+ }
+
+ // Call after changing collections or requests directly through getCollections() or getRequests()
+ public void refreshTree() {
+ synchronized (this) {
+ indexStale = true;
+ }
+ updateTreeLater();
+ }
+
+ // Brings the tree in line with the collections after they were changed. Only the nodes that differ
+ // are inserted, removed or relabelled, so expansion and selection elsewhere in the tree are kept.
+ // Calls made before the update runs are merged into one.
+ private void updateTreeLater() {
+ if (refreshQueued.compareAndSet(false, true)) {
+ SwingUtilities.invokeLater(() -> {
+ refreshQueued.set(false);
+ updateTree();
  });
  }
+ }
+
+ private void updateTree() {
+ DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
+ Set<Object> expanded = expandedNodes(root);
+
+ Set<Object> created = Collections.newSetFromMap(new IdentityHashMap<>());
+ List<CollectionTreeNode> inserted = updateChildren(root, collections, collectionNodes, node -> node.collection,
+ collection -> {
+ CollectionTreeNode node = new CollectionTreeNode(collection.getName(), collection.getName(), null, null);
+ node.collection = collection;
+ created.add(node);
+ return node;
+ },
+ this::relabelCollection);
+
+ for (CollectionTreeNode node : collectionNodes.values()) {
+ if (node.requestsLoaded) {
+ updateRequestNodes(node);
+ }
+ }
+
+ TreePath rootPath = new TreePath(root);
+ if (!collectionsTree.isExpanded(rootPath)) {
+ collectionsTree.expandPath(rootPath);
+ }
+ // Collections that were moved come back as they were; new ones open while they are small
+ int expandBudget = EXPAND_NEW_LIMIT;
+ for (CollectionTreeNode node : inserted) {
+ boolean expand;
+ if (created.contains(node)) {
+ expand = node.collection.getRequests().size() <= expandBudget;
+ if (expand) expandBudget -= node.collection.getRequests().size();
+ } else {
+ expand = expanded.contains(node);
+ }
+ if (expand) {
+ collectionsTree.expandPath(rootPath.pathByAddingChild(node));
+ }
+ }
+ }
+
+ private void loadRequestNodes(CollectionTreeNode node) {
+ if (node.requestsLoaded) return;
+ node.requestsLoaded = true;
+ updateRequestNodes(node);
+ }
+
+ private void updateRequestNodes(CollectionTreeNode collectionNode) {
+ updateChildren(collectionNode, collectionNode.collection.getRequests(), collectionNode.requestNodes, node -> node.request,
+ request -> {
+ RequestTreeNode node = new RequestTreeNode(requestLabel(request), collectionNode.getCollectionName(),
+ request.getMethod(), request.getName());
+ node.request = request;
+ return node;
+ },
+ this::relabelRequest);
+ }
+
+ private boolean relabelCollection(CollectionTreeNode node) {
+ String name = node.collection.getName();
+ if (name == null || name.equals(node.collectionName)) return false;
+ node.collectionName = name;
+ node.setUserObject(name);
+ for (RequestTreeNode requestNode : node.requestNodes.values()) {
+ requestNode.collectionName = name;
+ }
+ return true;
+ }
+
+ private boolean relabelRequest(RequestTreeNode node) {
+ SavedRequest request = node.request;
+ if (java.util.Objects.equals(request.getName(), node.requestName)
+ && java.util.Objects.equals(request.getMethod(), node.method)) {
+ return false;
+ }
+ node.requestName = request.getName();
+ node.method = request.getMethod();
+ node.setUserObject(requestLabel(request));
+ return true;
+ }
+
+ // Makes parent's children show items in order, reusing the node indexed for an item where there is one.
+ // Nodes whose item is gone, and the fewest nodes needed to restore the order, are removed; the missing
+ // ones are inserted and changed labels updated, with one model event per kind of change. Returns the
+ // inserted nodes, both new and moved.
+ @SuppressWarnings("unchecked")
+ private <T, N extends DefaultMutableTreeNode> List<N> updateChildren(DefaultMutableTreeNode parent, List<T> items,
+ Map<T, N> nodes, Function<N, T> itemOf, Function<T, N> create, Predicate<N> relabel) {
+ Map<T, Integer> positions = new IdentityHashMap<>(items.size() * 2);
+ for (int i = 0; i < items.size(); i++) {
+ positions.putIfAbsent(items.get(i), i);
+ }
+
+ int childCount = parent.getChildCount();
+ int[] wanted = new int[childCount];
+ for (int i = 0; i < childCount; i++) {
+ Integer position = positions.get(itemOf.apply((N) parent.getChildAt(i)));
+ wanted[i] = position == null ? -1 : position;
+ }
+ boolean[] keep = longestIncreasingRun(wanted);
+
+ int removedCount = 0;
+ for (boolean kept : keep) {
+ if (!kept) removedCount++;
+ }
+ if (removedCount > 0) {
+ int[] removedIndices = new int[removedCount];
+ Object[] removedNodes = new Object[removedCount];
+ for (int i = childCount - 1, r = removedCount; i >= 0; i--) {
+ if (keep[i]) continue;
+ N node = (N) parent.getChildAt(i);
+ if (wanted[i] < 0) {
+ nodes.remove(itemOf.apply(node));
+ }
+ parent.remove(i);
+ r--;
+ removedIndices[r] = i;
+ removedNodes[r] = node;
+ }
+ treeModel.nodesWereRemoved(parent, removedIndices, removedNodes);
+ }
+
+ List<N> inserted = new ArrayList<>();
+ int[] insertedIndices = new int[items.size()];
+ int at = 0;
+ for (int i = 0; i < items.size(); i++) {
+ T item = items.get(i);
+ if (positions.get(item) != i) continue; // listed twice, shown once
+ if (at < parent.getChildCount() && itemOf.apply((N) parent.getChildAt(at)) == item) {
+ at++;
+ continue;
+ }
+ N node = nodes.computeIfAbsent(item, create);
+ parent.insert(node, at);
+ insertedIndices[inserted.size()] = at;
+ inserted.add(node);
+ at++;
+ }
+ if (!inserted.isEmpty()) {
+ treeModel.nodesWereInserted(parent, java.util.Arrays.copyOf(insertedIndices, inserted.size()));
+ }
+
+ int[] changed = new int[parent.getChildCount()];
+ int changedCount = 0;
+ for (int i = 0; i < parent.getChildCount(); i++) {
+ if (relabel.test((N) parent.getChildAt(i))) {
+ changed[changedCount++] = i;
+ }
+ }
+ if (changedCount > 0) {
+ treeModel.nodesChanged(parent, java.util.Arrays.copyOf(changed, changedCount));
+ }
+ return inserted;
+ }
+
+ // Marks a longest strictly increasing subsequence of positions, ignoring entries of -1
+ private static boolean[] longestIncreasingRun(int[] positions) {
+ int n = positions.length;
+ int[] tails = new int[n];
+ int[] previous = new int[n];
+ int length = 0;
+ for (int i = 0; i < n; i++) {
+ if (positions[i] < 0) continue;
+ int low = 0, high = length;
+ while (low < high) {
+ int mid = (low + high) >>> 1;
+ if (positions[tails[mid]] < positions[i]) low = mid + 1; else high = mid;
+ }
+ previous[i] = low > 0 ? tails[low - 1] : -1;
+ tails[low] = i;
+ if (low == length) length++;
+ }
+ boolean[] keep = new boolean[n];
+ for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+ keep[i] = true;
+ }
+ return keep;
+ }
+
+ private Set<Object> expandedNodes(DefaultMutableTreeNode root) {
+ Set<Object> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+ Enumeration<TreePath> paths = collectionsTree.getExpandedDescendants(new TreePath(root));
+ while (paths != null && paths.hasMoreElements()) {
+ expanded.add(paths.nextElement().getLastPathComponent());
+ }
+ return expanded;
+ }
+
+ private static String requestLabel(SavedRequest request) {
+ return request.getMethod() + " " + request.getName();
+ }
+
+ // Draws each row as a coloured glyph and plain text. The labels used to be HTML, which costs a parsed
+ // view per row every time rows are laid out.
+ private static class CollectionTreeCellRenderer extends DefaultTreeCellRenderer {
+ private final Map<String, Icon> icons = new HashMap<>();
+ private Font iconFont;
+
+ @Override
+ public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
+ boolean leaf, int row, boolean hasFocus) {
+ super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+ if (value instanceof CollectionTreeNode) {
+ setIcon(icon("📁", com.rct.util.UITheme.ICON_COLLECTION));
+ } else if (value instanceof RequestTreeNode) {
+ String method = ((RequestTreeNode) value).getMethod();
+ setIcon(icon(com.rct.util.UITheme.getMethodGlyph(method), com.rct.util.UITheme.getMethodColor(method)));
+ }
+ return this;
+ }
+
+ private Icon icon(String glyph, String color) {
+ Font font = getFont();
+ if (!font.equals(iconFont)) {
+ icons.clear();
+ iconFont = font;
+ }
+ return icons.computeIfAbsent(glyph + color, key -> new GlyphIcon(glyph, Color.decode(color), getFontMetrics(font)));
+ }
+ }
+
+ private static class GlyphIcon implements Icon {
+ private final String glyph;
+ private final Color color;
+ private final FontMetrics metrics;
+
+ GlyphIcon(String glyph, Color color, FontMetrics metrics) {
+ this.glyph = glyph;
+ this.color = color;
+ this.metrics = metrics;
+ }
+
+ @Override
+ public void paintIcon(Component c, Graphics g, int x, int y) {
+ g.setColor(color);
+ g.setFont(metrics.getFont());
+ g.drawString(glyph, x, y + metrics.getAscent());
+ }
+
+ @Override
+ public int getIconWidth() { return metrics.stringWidth(glyph); }
+
+ @Override
+ public int getIconHeight() { return metrics.getHeight(); }
+ }
 
  public static class CollectionTreeNode extends DefaultMutableTreeNode {
  private String collectionName;
  private String method;
  private String requestName;
+ private Collection collection;
+ private boolean requestsLoaded;
+ private final Map<SavedRequest, RequestTreeNode> requestNodes = new IdentityHashMap<>();
 
  public CollectionTreeNode(String displayText, String collectionName, String method, String requestName) {
  super(displayText);
@@ -149,12 +620,17 @@ public class CollectionManager {
  public String getCollectionName() { return collectionName; }
  public String getMethod() { return method; }
  public String getRequestName() { return requestName; }
+
+ // A collection stays expandable before its request nodes are created
+ @Override
+ public boolean isLeaf() { return false; }
  }
 
  public static class RequestTreeNode extends DefaultMutableTreeNode {
  private String collectionName;
  private String method;
  private String requestName;
+ private SavedRequest request;
 
  public RequestTreeNode(String displayText, String collectionName, String method, String requestName) {
  super(displayText);
@@ -168,50 +644,46 @@ public class CollectionManager {
  public String getRequestName() { return requestName; }
  }
 
-
-
- private void expandAllNodes() {
- for (int i = 0; i < collectionsTree.getRowCount(); i++) {
- collectionsTree.expandRow(i);
- }
- }
-
  private File getCollectionsFile() {
  return new File(com.rct.util.FileManager.getCollectionsFile());
  }
 
  private void loadCollections() {
  try {
+ long started = System.currentTimeMillis();
  File file = getCollectionsFile();
- com.rct.util.LogManager.getInstance().log("Loading collections from: " + file.getAbsolutePath());
- if (file.exists()) {
+ if (store.exists()) {
+ com.rct.util.LogManager.getInstance().log("Loading collections from: " + com.rct.util.FileManager.getCollectionsDirectory());
+ collections.clear();
+ collections.addAll(store.load());
+ } else if (file.exists()) {
+ // collections.json from before the collection store; carried over once and then left as it is
+ com.rct.util.LogManager.getInstance().log("Migrating collections from: " + file.getAbsolutePath());
  Collection[] loadedCollections = objectMapper.readValue(file, Collection[].class);
  collections.clear();
- for (Collection collection : loadedCollections) {
- collections.add(collection);
- com.rct.util.LogManager.getInstance().log("Loaded collection: " + collection.getName() + " with " + collection.getRequests().size() + " requests");
- for (SavedRequest request : collection.getRequests()) {
- com.rct.util.LogManager.getInstance().log(" - Request: " + request.getName() + " (" + request.getMethod() + ") URL: " + request.getUrl());
- }
- }
- refreshTree();
- com.rct.util.LogManager.getInstance().log("Collections loaded successfully. Total: " + collections.size());
+ collections.addAll(java.util.Arrays.asList(loadedCollections));
+ saveCollections();
  } else {
  com.rct.util.LogManager.getInstance().log("Collections file does not exist yet.");
+ return;
  }
+ refreshTree();
+ int requestCount = 0;
+ for (Collection collection : collections) {
+ requestCount += collection.getRequests().size();
+ }
+ com.rct.util.LogManager.getInstance().log("Collections loaded successfully. Total: " + collections.size()
+ + " collections, " + requestCount + " requests in " + (System.currentTimeMillis() - started) + " ms");
  } catch (Exception e) {
  com.rct.util.LogManager.getInstance().log("Error loading collections: " + e.getMessage());
  e.printStackTrace();
  }
  }
 
- private void saveCollections() {
- try {
- File file = getCollectionsFile();
- objectMapper.writeValue(file, collections);
- } catch (Exception e) {
- com.rct.util.LogManager.getInstance().log("Error saving collections: " + e.getMessage());
- }
+ // Call after changing collections or their requests. Returns at once; the files of what changed
+ // are written on a background thread.
+ public void saveCollections() {
+ store.save(collections);
  }
 
  public void exportToFile(File file) throws Exception {
@@ -241,16 +713,19 @@ public class CollectionManager {
  }
 
  int importedCount = 0;
+ synchronized (this) {
  for (Collection importedCollection : importedCollections) {
  String originalName = importedCollection.getName();
  String uniqueName = getUniqueCollectionName(originalName);
   importedCollection.setName(uniqueName);
 
  collections.add(importedCollection);
+ indexCollection(importedCollection);
  importedCount++;
  }
+ }
 
- refreshTree();
+ updateTreeLater();
  saveCollections();
 
  com.rct.util.LogManager.getInstance().log("Successfully imported " + importedCount + " collections from " + file.getName());
@@ -258,17 +733,21 @@ public class CollectionManager {
 
  private String getUniqueCollectionName(String baseName) {
  String uniqueName = baseName;
-  int counter = 1;
+ // Start after the last suffix handed out for this name, so importing many copies stays linear
+ int counter = nextCollectionSuffix.getOrDefault(baseName, 1);
 
  while (collectionExists(uniqueName)) {
  uniqueName = baseName + " (" + counter + ")";
  counter++;
  }
 
+ if (!uniqueName.equals(baseName)) {
+ nextCollectionSuffix.put(baseName, counter);
+ }
  return uniqueName;
  }
 
  private boolean collectionExists(String name) {
- return collections.stream().anyMatch(c -> c.getName().equals(name));
+ return findCollection(name) != null;
  }
 }
@@ -0,0 +1,318 @@
+package com.rct.manager;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rct.util.DebouncedJsonWriter;
+import com.rct.util.LogManager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Saved collections on disk, one directory per collection:
+ *
+ *   index.json                       collections in order: [{"id", "name"}]
+ *   {collection id}/index.json       its requests in order: [{"id", "name", "method", "url"}]
+ *   {collection id}/{request id}.json  one request's {"headers", "body", "params"}
+ *
+ * load() reads only the index files. A loaded request reads its headers, body and params from here
+ * when first asked for, and the last DETAILS_CACHE_SIZE of those are kept in memory.
+ *
+ * save() runs on the thread that changes the collections and builds the new indexes from them; the
+ * details of requests that are new, changed or moved to another collection are taken over so the
+ * request no longer holds them. A background writer then writes those request files, then the index
+ * files that changed (each via a temp file and an atomic rename), and only then deletes the files no
+ * index refers to any more, so the indexes never point at a missing file.
+ */
+final class CollectionStore {
+ static final int DETAILS_CACHE_SIZE = 256;
+ private static final String INDEX_FILE = "index.json";
+ private static final String REQUEST_SUFFIX = ".json";
+
+ private final Path dir;
+ private final ObjectMapper mapper;
+ private final Writer writer;
+ // Details taken over by save() that are not on disk yet, by request id
+ private final Map<String, Pending> unsaved = new ConcurrentHashMap<>();
+ private final Map<String, Details> cache =
+         new LinkedHashMap<String, Details>(DETAILS_CACHE_SIZE, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Details> eldest) {
+           return size() > DETAILS_CACHE_SIZE;
+          }
+         };
+
+ CollectionStore(Path dir, long saveDelayMs) {
+  this.dir = dir;
+  this.mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  this.writer = new Writer(saveDelayMs);
+ }
+
+ boolean exists() {
+  return Files.exists(dir.resolve(INDEX_FILE));
+ }
+
+ List<CollectionManager.Collection> load() throws IOException {
+  CollectionRef[] refs = mapper.readValue(dir.resolve(INDEX_FILE).toFile(), CollectionRef[].class);
+  List<CollectionManager.Collection> collections = new ArrayList<>(refs.length);
+  Map<String, List<RequestRef>> written = new HashMap<>();
+  for (CollectionRef ref : refs) {
+   RequestRef[] requests;
+   try {
+    requests = mapper.readValue(dir.resolve(ref.id).resolve(INDEX_FILE).toFile(), RequestRef[].class);
+   } catch (IOException e) {
+    LogManager.getInstance().log("Error loading collection " + ref.name + ": " + e.getMessage());
+    requests = new RequestRef[0];
+   }
+   CollectionManager.Collection collection = new CollectionManager.Collection(ref.name);
+   collection.id = ref.id;
+   for (RequestRef request : requests) {
+    CollectionManager.SavedRequest savedRequest =
+            new CollectionManager.SavedRequest(request.name, request.method, request.url, null, null, null);
+    savedRequest.id = request.id;
+    savedRequest.storeIn(this, ref.id);
+    collection.addRequest(savedRequest);
+   }
+   collections.add(collection);
+   written.put(ref.id, List.of(requests));
+  }
+  writer.written = written;
+  writer.writtenRefs = List.of(refs);
+  return collections;
+ }
+
+ // Headers, body and params of a request saved here
+ Details details(CollectionManager.SavedRequest request) {
+  Pending pending = unsaved.get(request.id);
+  if (pending != null) {
+   return pending.details;
+  }
+  synchronized (cache) {
+   Details details = cache.get(request.id);
+   if (details != null) {
+    return details;
+   }
+  }
+  Details details;
+  try {
+   details = mapper.readValue(requestFile(request.storedIn, request.id).toFile(), Details.class);
+  } catch (IOException e) {
+   LogManager.getInstance().log("Error loading request " + request.getName() + ": " + e.getMessage());
+   return new Details();
+  }
+  synchronized (cache) {
+   cache.put(request.id, details);
+  }
+  return details;
+ }
+
+ void save(List<CollectionManager.Collection> collections) {
+  List<CollectionRef> refs = new ArrayList<>(collections.size());
+  Map<String, List<RequestRef>> indexes = new HashMap<>();
+  Set<String> live = new HashSet<>();
+  for (CollectionManager.Collection collection : collections) {
+   if (collection.id == null) {
+    collection.id = newId();
+   }
+   List<RequestRef> requests = new ArrayList<>(collection.getRequests().size());
+   for (CollectionManager.SavedRequest request : collection.getRequests()) {
+    if (request.id == null) {
+     request.id = newId();
+    }
+    if (!request.isStoredIn(this, collection.id)) {
+     Details details = new Details(request.getHeaders(), request.getBody(), request.getParams());
+     unsaved.put(request.id, new Pending(collection.id, details));
+     synchronized (cache) {
+      cache.remove(request.id);
+     }
+     request.storeIn(this, collection.id);
+    }
+    live.add(request.id);
+    requests.add(new RequestRef(request.id, request.getName(), request.getMethod(), request.getUrl()));
+   }
+   refs.add(new CollectionRef(collection.id, collection.getName()));
+   indexes.put(collection.id, requests);
+  }
+  // Taken over for requests that were deleted again before being written
+  unsaved.keySet().retainAll(live);
+  writer.submit(new Snapshot(refs, indexes));
+ }
+
+ // Writes pending changes and stops the writer thread
+ void close() {
+  writer.close();
+ }
+
+ private Path requestFile(String collectionId, String requestId) {
+  return dir.resolve(collectionId).resolve(requestId + REQUEST_SUFFIX);
+ }
+
+ static String newId() {
+  return UUID.randomUUID().toString();
+ }
+
+ private final class Writer extends DebouncedJsonWriter {
+  // What the files on disk hold; owned by the writer thread once load() has run
+  private Map<String, List<RequestRef>> written = new HashMap<>();
+  private List<CollectionRef> writtenRefs = List.of();
+
+  Writer(long delayMs) {
+   super(dir.resolve(INDEX_FILE), mapper, delayMs);
+  }
+
+  @Override
+  protected void write(Object value) throws IOException {
+   Snapshot snapshot = (Snapshot) value;
+   for (Map.Entry<String, List<RequestRef>> index : snapshot.indexes.entrySet()) {
+    for (RequestRef request : index.getValue()) {
+     Pending pending = unsaved.get(request.id);
+     if (pending != null && pending.collectionId.equals(index.getKey())) {
+      writeAtomically(requestFile(index.getKey(), request.id), mapper, pending.details);
+      unsaved.remove(request.id, pending);
+     }
+    }
+   }
+   for (Map.Entry<String, List<RequestRef>> index : snapshot.indexes.entrySet()) {
+    if (!index.getValue().equals(written.get(index.getKey()))) {
+     writeAtomically(dir.resolve(index.getKey()).resolve(INDEX_FILE), mapper, index.getValue());
+    }
+   }
+   if (!snapshot.refs.equals(writtenRefs)) {
+    writeAtomically(dir.resolve(INDEX_FILE), mapper, snapshot.refs);
+   }
+
+   for (Map.Entry<String, List<RequestRef>> index : written.entrySet()) {
+    List<RequestRef> current = snapshot.indexes.get(index.getKey());
+    if (current == null) {
+     deleteDirectory(dir.resolve(index.getKey()));
+     continue;
+    }
+    Set<String> kept = new HashSet<>();
+    for (RequestRef request : current) {
+     kept.add(request.id);
+    }
+    for (RequestRef request : index.getValue()) {
+     if (!kept.contains(request.id)) {
+      Files.deleteIfExists(requestFile(index.getKey(), request.id));
+     }
+    }
+   }
+   written = snapshot.indexes;
+   writtenRefs = snapshot.refs;
+  }
+
+  private void deleteDirectory(Path directory) throws IOException {
+   try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+    for (Path file : files) {
+     Files.delete(file);
+    }
+   } catch (NoSuchFileException e) {
+    return;
+   }
+   Files.deleteIfExists(directory);
+  }
+ }
+
+ private static final class Snapshot {
+  final List<CollectionRef> refs;
+  final Map<String, List<RequestRef>> indexes;
+
+  Snapshot(List<CollectionRef> refs, Map<String, List<RequestRef>> indexes) {
+   this.refs = refs;
+   this.indexes = indexes;
+  }
+ }
+
+ private static final class Pending {
+  final String collectionId;
+  final Details details;
+
+  Pending(String collectionId, Details details) {
+   this.collectionId = collectionId;
+   this.details = details;
+  }
+ }
+
+ static final class Details {
+  public String headers;
+  public String body;
+  public String params;
+
+  Details() {
+  }
+
+  Details(String headers, String body, String params) {
+   this.headers = headers;
+   this.body = body;
+   this.params = params;
+  }
+ }
+
+ static final class CollectionRef {
+  public String id;
+  public String name;
+
+  CollectionRef() {
+  }
+
+  CollectionRef(String id, String name) {
+   this.id = id;
+   this.name = name;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+   if (!(o instanceof CollectionRef)) return false;
+   CollectionRef other = (CollectionRef) o;
+   return Objects.equals(id, other.id) && Objects.equals(name, other.name);
+  }
+
+  @Override
+  public int hashCode() {
+   return Objects.hash(id, name);
+  }
+ }
+
+ static final class RequestRef {
+  public String id;
+  public String name;
+  public String method;
+  public String url;
+
+  RequestRef() {
+  }
+
+  RequestRef(String id, String name, String method, String url) {
+   this.id = id;
+   this.name = name;
+   this.method = method;
+   this.url = url;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+   if (!(o instanceof RequestRef)) return false;
+   RequestRef other = (RequestRef) o;
+   return Objects.equals(id, other.id) && Objects.equals(name, other.name)
+           && Objects.equals(method, other.method) && Objects.equals(url, other.url);
+  }
+
+  @Override
+  public int hashCode() {
+   return Objects.hash(id, name, method, url);
+  }
+ }
+}
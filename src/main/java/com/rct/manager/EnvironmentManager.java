@@ -2,22 +2,25 @@ package com.rct.manager;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.rct.util.DynamicVariables;
 import com.rct.util.LogManager;
+import com.rct.util.VariableTemplate;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class EnvironmentManager {
  private static final String ENVIRONMENTS_FILE = "environments.json";
- private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{([^}]+)\\}\\}");
 
  private Map<String, Environment> environments;
  private String activeEnvironment;
  private ObjectMapper objectMapper;
  private List<EnvironmentChangeListener> listeners;
+ // Republished after every change; readers use whichever version they picked up without locking
+ private volatile EnvironmentSnapshot snapshot = EnvironmentSnapshot.EMPTY;
+ private long snapshotVersion;
 
  public static class Environment {
  private String name;
@@ -59,17 +62,22 @@ public class EnvironmentManager {
  public interface EnvironmentChangeListener {
  void onEnvironmentChanged(String environmentName);
  void onVariablesUpdated();
+
+ // Called after either of the above with the snapshot that includes the change
+ default void onSnapshotPublished(EnvironmentSnapshot snapshot) {}
  }
 
  public EnvironmentManager() {
  this.environments = new HashMap<>();
  this.objectMapper = new ObjectMapper();
- this.listeners = new ArrayList<>();
+ this.listeners = new CopyOnWriteArrayList<>();
  loadEnvironments();
 
  // Create default environment if none exist
  if (environments.isEmpty()) {
  createDefaultEnvironment();
+ } else {
+ publishSnapshot();
  }
  }
 
@@ -155,52 +163,39 @@ public class EnvironmentManager {
  }
  }
 
- public void removeVariable(String environmentName, String key) {
+ public void replaceVariables(String environmentName, Map<String, String> variables) {
  Environment env = environments.get(environmentName);
  if (env != null) {
- env.removeVariable(key);
+ env.setVariables(new HashMap<>(variables));
  saveEnvironments();
  notifyVariablesUpdated();
  }
  }
 
- public String resolveVariables(String text) {
- if (text == null || activeEnvironment == null) {
- return text;
+ public void removeVariable(String environmentName, String key) {
+ Environment env = environments.get(environmentName);
+ if (env != null) {
+ env.removeVariable(key);
+ saveEnvironments();
+ notifyVariablesUpdated();
  }
-
- Environment env = environments.get(activeEnvironment);
- if (env == null) {
- return text;
  }
 
- String resolved = text;
- Matcher matcher = VARIABLE_PATTERN.matcher(text);
-
- while (matcher.find()) {
- String variableName = matcher.group(1);
- String variableValue = env.getVariables().get(variableName);
-
- if (variableValue != null) {
- resolved = resolved.replace("{{" + variableName + "}}", variableValue);
- }
+ // Resolves against the latest published snapshot; runners that need one consistent view for
+ // their whole run should capture getSnapshot() once instead
+ public String resolveVariables(String text) {
+ return snapshot.resolveVariables(text);
  }
 
- return resolved;
+ public EnvironmentSnapshot getSnapshot() {
+ return snapshot;
  }
 
  public List<String> findVariablesInText(String text) {
- List<String> variables = new ArrayList<>();
- if (text != null) {
- Matcher matcher = VARIABLE_PATTERN.matcher(text);
- while (matcher.find()) {
- String variableName = matcher.group(1);
- if (!variables.contains(variableName)) {
- variables.add(variableName);
+ if (text == null || !text.contains("{{")) {
+ return new ArrayList<>();
  }
- }
- }
- return variables;
+ return new ArrayList<>(VariableTemplate.compile(text).getVariableNames());
  }
 
  public boolean hasUnresolvedVariables(String text) {
@@ -215,7 +210,7 @@ public class EnvironmentManager {
 
  List<String> variables = findVariablesInText(text);
  for (String variable : variables) {
- if (!env.getVariables().containsKey(variable)) {
+ if (!env.getVariables().containsKey(variable) && !DynamicVariables.isDynamic(variable)) {
  return true;
  }
  }
@@ -231,9 +226,11 @@ public class EnvironmentManager {
  }
 
  private void notifyEnvironmentChanged(String environmentName) {
+ EnvironmentSnapshot published = publishSnapshot();
  for (EnvironmentChangeListener listener : listeners) {
  try {
  listener.onEnvironmentChanged(environmentName);
+ listener.onSnapshotPublished(published);
  } catch (Exception e) {
  LogManager.getInstance().log("Error notifying environment change listener: " + e.getMessage());
  }
@@ -241,15 +238,27 @@ public class EnvironmentManager {
  }
 
  private void notifyVariablesUpdated() {
+ EnvironmentSnapshot published = publishSnapshot();
  for (EnvironmentChangeListener listener : listeners) {
  try {
  listener.onVariablesUpdated();
+ listener.onSnapshotPublished(published);
  } catch (Exception e) {
  LogManager.getInstance().log("Error notifying variables update listener: " + e.getMessage());
  }
  }
  }
 
+ // Copies the current state into a new immutable snapshot; earlier snapshots are never modified
+ private synchronized EnvironmentSnapshot publishSnapshot() {
+ Map<String, Map<String, String>> variables = new HashMap<>();
+ for (Map.Entry<String, Environment> entry : environments.entrySet()) {
+ variables.put(entry.getKey(), entry.getValue().getVariables());
+ }
+ snapshot = new EnvironmentSnapshot(++snapshotVersion, activeEnvironment, variables);
+ return snapshot;
+ }
+
  private void loadEnvironments() {
  File file = getEnvironmentsFile();
  if (file.exists()) {
@@ -0,0 +1,80 @@
+package com.rct.manager;
+
+import com.rct.util.DynamicVariables;
+import com.rct.util.VariableTemplate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable view of every environment and the active one at a point in time. EnvironmentManager
+ * publishes a new snapshot with a higher version on every change, so a runner that captures one at
+ * start resolves the same values for its whole run and never needs a lock to do so.
+ */
+public final class EnvironmentSnapshot {
+ public static final EnvironmentSnapshot EMPTY = new EnvironmentSnapshot(0, null, Collections.emptyMap());
+
+ private final long version;
+ private final String activeEnvironment;
+ private final Map<String, Map<String, String>> environments;
+ private final Map<String, String> activeVariables;
+
+ EnvironmentSnapshot(long version, String activeEnvironment, Map<String, Map<String, String>> environments) {
+  Map<String, Map<String, String>> copy = new HashMap<>();
+  for (Map.Entry<String, Map<String, String>> entry : environments.entrySet()) {
+   Map<String, String> variables = entry.getValue() != null ? entry.getValue() : Collections.emptyMap();
+   copy.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>(variables)));
+  }
+  this.version = version;
+  this.activeEnvironment = activeEnvironment;
+  this.environments = Collections.unmodifiableMap(copy);
+  this.activeVariables = activeEnvironment != null && copy.containsKey(activeEnvironment) ?
+          copy.get(activeEnvironment) : null;
+ }
+
+ public long getVersion() { return version; }
+ public String getActiveEnvironmentName() { return activeEnvironment; }
+
+ public Set<String> getEnvironmentNames() {
+  return new TreeSet<>(environments.keySet());
+ }
+
+ // Unmodifiable; empty if there is no such environment
+ public Map<String, String> getVariables(String environmentName) {
+  Map<String, String> variables = environments.get(environmentName);
+  return variables != null ? variables : Collections.emptyMap();
+ }
+
+ public Map<String, String> getActiveVariables() {
+  return activeVariables != null ? activeVariables : Collections.emptyMap();
+ }
+
+ public String resolveVariables(String text) {
+  return resolveVariables(text, DynamicVariables.Context.NONE);
+ }
+
+ // Built-in {{$name}} variables are generated for this call; everything else comes from the active environment
+ public String resolveVariables(String text, DynamicVariables.Context context) {
+  return resolveVariables(text, context, null);
+ }
+
+ // data (e.g. a row from a DataFeeder) takes precedence over the environment; may be null
+ public String resolveVariables(String text, DynamicVariables.Context context, Map<String, String> data) {
+  if (text == null) {
+   return null;
+  }
+  return VariableTemplate.resolve(text, name -> {
+   String value = DynamicVariables.value(name, context);
+   if (value == null && data != null) {
+    value = data.get(name);
+   }
+   if (value == null && activeVariables != null) {
+    value = activeVariables.get(name);
+   }
+   return value;
+  });
+ }
+}
@@ -0,0 +1,465 @@
+package com.rct.manager;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.rct.util.LogManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only JSON Lines log of history changes, one change per line:
+ *
+ *   {"op":"add","entry":{...}}   {"op":"remove","id":42}   {"op":"clear"}
+ *
+ * The journal is also the history store: HistoryStore keeps only the byte offset of each entry's
+ * "add" record and reads the entry back with read(offset) when it is needed.
+ *
+ * Callers only queue changes. A background thread serializes everything queued within
+ * BATCH_WINDOW_MS and writes it with one write and one fsync, then reports where each entry landed.
+ * A record counts once its newline is on disk, so on load a torn last line left by a crash is cut
+ * off and the rest replayed. When most records describe entries that are gone, the live "add"
+ * records are copied into a temp file that is atomically renamed over the journal; a crash leaves
+ * either the old or the new journal. Entry ids must increase in the order entries are added.
+ */
+class HistoryJournal implements Closeable {
+ private static final long BATCH_WINDOW_MS = 200;
+ private static final long CLOSE_TIMEOUT_MS = 5000;
+ // Compact once the file holds at least this many records and more than twice the live entries
+ private static final int COMPACT_MIN_RECORDS = 1000;
+ private static final int READ_CHUNK_SIZE = 8 * 1024;
+
+ static final ObjectMapper MAPPER = new ObjectMapper()
+         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+ private static final String OP_ADD = "add";
+ private static final String OP_REMOVE = "remove";
+ private static final String OP_CLEAR = "clear";
+
+ // Receives the records of the journal in file order; for additions only the indexed fields are parsed
+ interface Visitor {
+  void added(long id, String method, String url, int statusCode, String timestamp, long offset);
+  void removed(long id);
+  void cleared();
+ }
+
+ // Called on the writer thread
+ interface Listener {
+  // ids[i] was written at offsets[i], i < count, and is now durable
+  void written(long[] ids, long[] offsets, int count);
+
+  // The journal has been rewritten; swap.run() installs the new file, after which the live entries
+  // ids[i] are at offsets[i]. Implementations run both under the same lock as their read() calls.
+  void compacted(Runnable swap, long[] ids, long[] offsets, int count);
+ }
+
+ private static final class Change {
+  final String op;
+  final long id;
+  final HistoryManager.HistoryEntry entry;
+
+  Change(String op, long id, HistoryManager.HistoryEntry entry) {
+   this.op = op;
+   this.id = id;
+   this.entry = entry;
+  }
+ }
+
+ // Queued by close(); compared by identity
+ private static final Change STOP = new Change(null, 0, null);
+
+ private final Path file;
+ private final BlockingQueue<Change> pending = new LinkedBlockingQueue<>();
+ private Listener listener;
+ private Thread writer;
+ private volatile boolean closed;
+ // Positional reads for read(); replaced when the journal is compacted
+ private FileChannel reader;
+
+ // Owned by load() and then by the writer thread
+ private FileChannel channel;
+ private long records;
+ private long liveEntries;
+
+ HistoryJournal(Path file) {
+  this.file = file;
+ }
+
+ boolean exists() {
+  return Files.exists(file);
+ }
+
+ // Replays the journal into visitor and cuts off a torn final record. Call before start().
+ void load(Visitor visitor) throws IOException {
+  if (!Files.exists(file)) return;
+
+  long validLength = replay(visitor);
+  long length = Files.size(file);
+  if (validLength < length) {
+   LogManager.getInstance().log("History journal ends with an incomplete record, discarding "
+           + (length - validLength) + " bytes");
+   try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+    truncate.truncate(validLength);
+    truncate.force(true);
+   }
+  }
+ }
+
+ void start(Listener listener) throws IOException {
+  this.listener = listener;
+  Files.createDirectories(file.toAbsolutePath().getParent());
+  channel = openForAppend();
+  reader = FileChannel.open(file, StandardOpenOption.READ);
+  writer = new Thread(this::writeLoop, "history-journal");
+  writer.setDaemon(true);
+  writer.start();
+ }
+
+ void add(HistoryManager.HistoryEntry entry) {
+  enqueue(new Change(OP_ADD, entry.getId(), entry));
+ }
+
+ void remove(long id) {
+  enqueue(new Change(OP_REMOVE, id, null));
+ }
+
+ void clear() {
+  enqueue(new Change(OP_CLEAR, 0, null));
+ }
+
+ // The entry whose "add" record starts at offset. Callers must not race with Listener.compacted.
+ HistoryManager.HistoryEntry read(long offset) throws IOException {
+  ByteArrayOutputStream line = new ByteArrayOutputStream(READ_CHUNK_SIZE);
+  ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+  long position = offset;
+  while (true) {
+   buffer.clear();
+   int read = reader.read(buffer, position);
+   if (read <= 0) {
+    throw new IOException("History record at " + offset + " is incomplete");
+   }
+   byte[] bytes = buffer.array();
+   for (int i = 0; i < read; i++) {
+    if (bytes[i] == '\n') {
+     line.write(bytes, 0, i);
+     JsonNode record = MAPPER.readTree(line.toByteArray());
+     return MAPPER.treeToValue(record.get("entry"), HistoryManager.HistoryEntry.class);
+    }
+   }
+   line.write(bytes, 0, read);
+   position += read;
+  }
+ }
+
+ // Writes whatever is still queued and stops the writer
+ @Override
+ public void close() {
+  if (closed) return;
+  closed = true;
+  pending.add(STOP);
+  if (writer != null && writer != Thread.currentThread()) {
+   try {
+    writer.join(CLOSE_TIMEOUT_MS);
+   } catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+   }
+  }
+ }
+
+ private void enqueue(Change change) {
+  if (!closed) {
+   pending.add(change);
+  }
+ }
+
+ private void writeLoop() {
+  List<Change> batch = new ArrayList<>();
+  ByteArrayOutputStream out = new ByteArrayOutputStream();
+  try {
+   compactIfNeeded();
+   boolean stopping = false;
+   while (!stopping) {
+    batch.clear();
+    batch.add(pending.take());
+    // Let the rest of a burst arrive so it costs one write and one fsync
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW_MS);
+    while (batch.get(batch.size() - 1) != STOP) {
+     long wait = deadline - System.nanoTime();
+     Change next = wait > 0 ? pending.poll(wait, TimeUnit.NANOSECONDS) : null;
+     if (next == null) break;
+     batch.add(next);
+    }
+    stopping = batch.get(batch.size() - 1) == STOP;
+    try {
+     write(batch, out);
+     compactIfNeeded();
+    } catch (IOException e) {
+     LogManager.getInstance().log("Error writing history journal: " + e.getMessage());
+    }
+   }
+  } catch (InterruptedException e) {
+   // Daemon thread; nothing left to do
+  } catch (IOException e) {
+   LogManager.getInstance().log("Error compacting history journal: " + e.getMessage());
+  } finally {
+   try {
+    channel.close();
+   } catch (IOException e) {
+    // Every completed batch has already been forced
+   }
+  }
+ }
+
+ private void write(List<Change> batch, ByteArrayOutputStream out) throws IOException {
+  out.reset();
+  long base = channel.size();
+  long[] ids = new long[batch.size()];
+  long[] offsets = new long[batch.size()];
+  int added = 0;
+  int written = 0;
+  for (Change change : batch) {
+   if (change == STOP) continue;
+   ObjectNode record = MAPPER.createObjectNode();
+   record.put("op", change.op);
+   if (OP_ADD.equals(change.op)) {
+    record.set("entry", MAPPER.valueToTree(change.entry));
+    ids[added] = change.id;
+    offsets[added++] = base + out.size();
+    liveEntries++;
+   } else if (OP_REMOVE.equals(change.op)) {
+    record.put("id", change.id);
+    liveEntries = Math.max(0, liveEntries - 1);
+   } else {
+    liveEntries = 0;
+   }
+   MAPPER.writeValue(out, record);
+   out.write('\n');
+   written++;
+  }
+  if (written == 0) return;
+
+  ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+  while (buffer.hasRemaining()) {
+   channel.write(buffer);
+  }
+  channel.force(false);
+  records += written;
+  if (added > 0) {
+   listener.written(ids, offsets, added);
+  }
+ }
+
+ private void compactIfNeeded() throws IOException {
+  if (records < COMPACT_MIN_RECORDS || records <= 2 * liveEntries) return;
+
+  // Everything queued so far has been written, so the file is the complete state
+  LiveRecords live = new LiveRecords();
+  replay(live);
+  long[] newOffsets = new long[live.count];
+  Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+  try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+       FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+               StandardOpenOption.TRUNCATE_EXISTING)) {
+   // Each live record runs from its offset up to the offset of the next record in the old file
+   long position = 0;
+   for (int i = 0; i < live.count; i++) {
+    long start = live.offsets[i];
+    long end = live.ends[i];
+    newOffsets[i] = position;
+    long copied = 0;
+    while (copied < end - start) {
+     copied += in.transferTo(start + copied, end - start - copied, out);
+    }
+    position += end - start;
+   }
+   out.force(true);
+  }
+
+  int count = live.count;
+  try {
+   listener.compacted(() -> {
+    try {
+     channel.close();
+     reader.close();
+     try {
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+     } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+     } finally {
+      channel = openForAppend();
+      reader = FileChannel.open(file, StandardOpenOption.READ);
+     }
+    } catch (IOException e) {
+     throw new UncheckedIOException(e);
+    }
+   }, live.ids, newOffsets, count);
+  } catch (UncheckedIOException e) {
+   throw e.getCause();
+  }
+  LogManager.getInstance().log("Compacted history journal from " + records + " to " + count + " records");
+  records = count;
+  liveEntries = count;
+ }
+
+ // Tracks where each live "add" record starts and ends, using the ascending ids for removals
+ private static final class LiveRecords implements Visitor {
+  long[] ids = new long[256];
+  long[] offsets = new long[256];
+  long[] ends = new long[256];
+  int count;
+  int removed;
+
+  @Override
+  public void added(long id, String method, String url, int statusCode, String timestamp, long offset) {
+   if (count == ids.length) {
+    ids = Arrays.copyOf(ids, count * 2);
+    offsets = Arrays.copyOf(offsets, count * 2);
+    ends = Arrays.copyOf(ends, count * 2);
+   }
+   ids[count] = id;
+   offsets[count] = offset;
+   count++;
+  }
+
+  void recordEnd(long end) {
+   if (count > 0 && ends[count - 1] == 0) {
+    ends[count - 1] = end;
+   }
+  }
+
+  @Override
+  public void removed(long id) {
+   int index = Arrays.binarySearch(ids, 0, count, id);
+   if (index >= 0) {
+    // Shift out now rather than keep tombstones; removals are rare next to additions
+    System.arraycopy(ids, index + 1, ids, index, count - index - 1);
+    System.arraycopy(offsets, index + 1, offsets, index, count - index - 1);
+    System.arraycopy(ends, index + 1, ends, index, count - index - 1);
+    count--;
+    ends[count] = 0;
+   }
+  }
+
+  @Override
+  public void cleared() {
+   Arrays.fill(ends, 0, count, 0);
+   count = 0;
+  }
+ }
+
+ // Applies every complete record to visitor and returns the length of the file up to the end of
+ // the last complete record
+ private long replay(Visitor visitor) throws IOException {
+  records = 0;
+  liveEntries = 0;
+  byte[] buffer = new byte[64 * 1024];
+  // Bytes of buffer[0, filled) start at file offset bufferStart
+  long bufferStart = 0;
+  int filled = 0;
+  try (InputStream in = Files.newInputStream(file)) {
+   int read;
+   while ((read = in.read(buffer, filled, buffer.length - filled)) != -1) {
+    filled += read;
+    int lineStart = 0;
+    for (int i = 0; i < filled; i++) {
+     if (buffer[i] != '\n') continue;
+     if (i > lineStart) {
+      records++;
+      apply(buffer, lineStart, i - lineStart, bufferStart + lineStart, visitor);
+      if (visitor instanceof LiveRecords) {
+       ((LiveRecords) visitor).recordEnd(bufferStart + i + 1);
+      }
+     }
+     lineStart = i + 1;
+    }
+    // Keep the partial last line; grow the buffer if a single record does not fit
+    System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+    filled -= lineStart;
+    bufferStart += lineStart;
+    if (filled == buffer.length) {
+     buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+   }
+  }
+  return bufferStart;
+ }
+
+ // Streams through the record instead of building a tree; headers and bodies are skipped unread
+ private void apply(byte[] bytes, int start, int length, long offset, Visitor visitor) {
+  String op = null;
+  long id = 0;
+  boolean hasEntry = false;
+  String method = "";
+  String url = "";
+  String timestamp = null;
+  int statusCode = 0;
+  try (JsonParser parser = MAPPER.getFactory().createParser(bytes, start, length)) {
+   if (parser.nextToken() != JsonToken.START_OBJECT) {
+    throw new IOException("not a JSON object");
+   }
+   while (parser.nextToken() == JsonToken.FIELD_NAME) {
+    String field = parser.getCurrentName();
+    JsonToken token = parser.nextToken();
+    if ("op".equals(field)) {
+     op = parser.getValueAsString();
+    } else if ("id".equals(field)) {
+     id = parser.getValueAsLong();
+    } else if ("entry".equals(field) && token == JsonToken.START_OBJECT) {
+     hasEntry = true;
+     while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      parser.nextToken();
+      switch (name) {
+       case "id": id = parser.getValueAsLong(); break;
+       case "method": method = parser.getValueAsString(""); break;
+       case "url": url = parser.getValueAsString(""); break;
+       case "statusCode": statusCode = parser.getValueAsInt(); break;
+       case "timestamp": timestamp = parser.getValueAsString(); break;
+       default: parser.skipChildren();
+      }
+     }
+    } else {
+     parser.skipChildren();
+    }
+   }
+  } catch (IOException e) {
+   LogManager.getInstance().log("Skipping unreadable history journal record: " + e.getMessage());
+   return;
+  }
+
+  if (OP_ADD.equals(op) && hasEntry) {
+   visitor.added(id, method, url, statusCode, timestamp, offset);
+   liveEntries++;
+  } else if (OP_REMOVE.equals(op)) {
+   visitor.removed(id);
+   liveEntries = Math.max(0, liveEntries - 1);
+  } else if (OP_CLEAR.equals(op)) {
+   visitor.cleared();
+   liveEntries = 0;
+  }
+ }
+
+ private FileChannel openForAppend() throws IOException {
+  return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+ }
+}
@@ -5,19 +5,29 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class HistoryManager {
- private List<HistoryEntry> history;
- private DefaultListModel<String> listModel;
+ // Example row that fixes the list's cell size, so the list never measures every row
+ private static final String PROTOTYPE_ROW = "[2024-01-01 00:00:00] OPTIONS https://api.example.com/v1/resources/12345 - 200 (1234ms)";
+ private static final int DISPLAY_CACHE_SIZE = 1024;
+
+ private HistoryListModel listModel;
  private JList<String> historyList;
- private DateTimeFormatter formatter;
  private ObjectMapper objectMapper;
+ private HistoryJournal journal;
+ private HistoryStore store;
+ private com.rct.util.BlobStore responseBodies;
+ private HistoryEntry lastEntry;
+ private long nextEntryId = 1;
 
  public static class HistoryEntry {
+ // Identifies the entry in the history journal
+ private long id;
  private String method;
  private String url;
  private int statusCode;
@@ -25,6 +35,8 @@ public class HistoryManager {
  private String timestamp;
  private java.util.Map<String, String> headers;
  private String body;
+ // Key of the response body in the response blob store; null if the response had no body
+ private String responseBodyHash;
 
  public HistoryEntry() {
  this.headers = new java.util.HashMap<>();
@@ -44,6 +56,8 @@ public class HistoryManager {
  this.body = body != null ? body : "";
  }
 
+ public long getId() { return id; }
+ public void setId(long id) { this.id = id; }
  public String getMethod() { return method; }
  public void setMethod(String method) { this.method = method; }
  public String getUrl() { return url; }
@@ -58,6 +72,8 @@ public class HistoryManager {
  public void setHeaders(java.util.Map<String, String> headers) { this.headers = headers; }
  public String getBody() { return body; }
  public void setBody(String body) { this.body = body; }
+ public String getResponseBodyHash() { return responseBodyHash; }
+ public void setResponseBodyHash(String responseBodyHash) { this.responseBodyHash = responseBodyHash; }
  }
 
  public static class HistoryListCellRenderer extends DefaultListCellRenderer {
@@ -79,15 +95,86 @@ public class HistoryManager {
  }
  }
 
+ // Rows of the current search, newest first; display text is built from the store only for rows
+ // the list actually paints
+ private class HistoryListModel extends AbstractListModel<String> {
+ private HistoryStore.Query query = HistoryStore.Query.ALL;
+ // Oldest first, so new matches are appended
+ private HistoryStore.IntList rows = new HistoryStore.IntList();
+ private final Map<Integer, String> displayCache = new LinkedHashMap<Integer, String>(DISPLAY_CACHE_SIZE, 0.75f, true) {
+ @Override
+ protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+ return size() > DISPLAY_CACHE_SIZE;
+ }
+ };
+
+ @Override
+ public int getSize() { return rows.size(); }
+
+ @Override
+ public String getElementAt(int index) {
+ int row = rowAt(index);
+ String text = displayCache.get(row);
+ if (text == null) {
+ HistoryEntry entry = store.get(row);
+ text = entry != null ? String.format("[%s] %s %s - %d (%dms)",
+ entry.getTimestamp(), entry.getMethod(), entry.getUrl(), entry.getStatusCode(), entry.getResponseTime()) : "";
+ displayCache.put(row, text);
+ }
+ return text;
+ }
+
+ int rowAt(int index) {
+ return rows.get(rows.size() - 1 - index);
+ }
+
+ void setQuery(HistoryStore.Query query) {
+ int oldSize = rows.size();
+ this.query = query;
+ rows = store.search(query);
+ if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+ if (rows.size() > 0) fireIntervalAdded(this, 0, rows.size() - 1);
+ }
+
+ void added(int row) {
+ if (store.matches(row, query)) {
+ rows.add(row);
+ fireIntervalAdded(this, 0, 0);
+ }
+ }
+
+ void removed(int index) {
+ rows.removeAt(rows.size() - 1 - index);
+ fireIntervalRemoved(this, index, index);
+ }
+
+ void cleared() {
+ int oldSize = rows.size();
+ rows = new HistoryStore.IntList();
+ displayCache.clear();
+ if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+ }
+ }
+
  public HistoryManager() {
  com.rct.util.LogManager.getInstance().log("Creating new HistoryManager instance");
- history = new ArrayList<>();
- listModel = new DefaultListModel<>();
+ objectMapper = new ObjectMapper();
+ journal = new HistoryJournal(Paths.get(com.rct.util.FileManager.getHistoryJournalFile()));
+ store = new HistoryStore(journal);
+ responseBodies = new com.rct.util.BlobStore(Paths.get(com.rct.util.FileManager.getResponseBodiesDirectory()),
+ com.rct.util.BlobStore.DEFAULT_MAX_BYTES);
+ listModel = new HistoryListModel();
  historyList = new JList<>(listModel);
  historyList.setCellRenderer(new HistoryListCellRenderer());
- formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
- objectMapper = new ObjectMapper();
+ historyList.setPrototypeCellValue(PROTOTYPE_ROW);
  loadHistory();
+ try {
+ journal.start(store);
+ } catch (Exception e) {
+ com.rct.util.LogManager.getInstance().log("Error opening history journal: " + e.getMessage());
+ }
+ // Writes still waiting for the journal's next batch or the blob store
+ Runtime.getRuntime().addShutdownHook(new Thread(this::close, "history-close"));
  }
 
  public void addHistoryEntry(String method, String url, int statusCode, long responseTime) {
@@ -95,11 +182,14 @@ public class HistoryManager {
  }
 
  public void addHistoryEntry(String method, String url, int statusCode, long responseTime, java.util.Map<String, String> headers, String body) {
+ addHistoryEntry(method, url, statusCode, responseTime, headers, body, null);
+ }
+
+ public void addHistoryEntry(String method, String url, int statusCode, long responseTime, java.util.Map<String, String> headers, String body, String responseBody) {
  com.rct.util.LogManager.getInstance().log("Adding history entry: " + method + " " + url + " - " + statusCode);
 
  // Check for duplicate entry (same method, url, status within last 5 seconds)
- if (!history.isEmpty()) {
- HistoryEntry lastEntry = history.get(0);
+ if (lastEntry != null) {
  if (lastEntry.getMethod().equals(method) &&
  lastEntry.getUrl().equals(url) &&
  lastEntry.getStatusCode() == statusCode) {
@@ -119,35 +209,65 @@ public class HistoryManager {
  }
 
  HistoryEntry entry = new HistoryEntry(method, url, statusCode, responseTime, headers, body);
- history.add(0, entry);
+ entry.setId(nextEntryId++);
+ // Identical responses share one compressed copy
+ entry.setResponseBodyHash(responseBodies.put(responseBody));
+ int row = store.add(entry);
+ journal.add(entry);
+ lastEntry = entry;
+ listModel.added(row);
+ }
 
- String displayText = String.format("[%s] %s %s - %d (%dms)",
- LocalDateTime.now().format(formatter), method, url, statusCode, responseTime);
+ public void clearHistory() {
+ store.clear();
+ listModel.cleared();
+ journal.clear();
+ lastEntry = null;
+ }
 
- listModel.add(0, displayText);
+ // index is a position in the list as currently filtered
+ public void removeHistoryEntry(int index) {
+ if (index >= 0 && index < listModel.getSize()) {
+ int row = listModel.rowAt(index);
+ long id = store.getId(row);
+ if (store.remove(row)) {
+ listModel.removed(index);
+ journal.remove(id);
+ if (lastEntry != null && lastEntry.getId() == id) {
+ lastEntry = null;
+ }
+ }
+ }
+ }
 
- if (history.size() > 100) {
- history.remove(history.size() - 1);
- listModel.remove(listModel.size() - 1);
+ // Entry shown at index of the list, read from the history store; null if it is gone
+ public HistoryEntry getEntry(int index) {
+ if (index < 0 || index >= listModel.getSize()) {
+ return null;
  }
- saveHistory();
+ return store.get(listModel.rowAt(index));
  }
 
- public void clearHistory() {
- history.clear();
- listModel.clear();
- saveHistory();
+ public int getEntryCount() {
+ return store.getLiveCount();
  }
 
- public void removeHistoryEntry(int index) {
- if (index >= 0 && index < history.size()) {
- history.remove(index);
- listModel.remove(index);
- saveHistory();
+ // Filters the list; see HistoryStore.Query for the syntax. Blank shows everything.
+ public void search(String query) {
+ listModel.setQuery(HistoryStore.Query.parse(query != null ? query : ""));
+ }
+
+ // Null if the entry has no stored response body or it has been evicted to keep the store under its size limit
+ public String getResponseBody(HistoryEntry entry) {
+ return entry != null ? responseBodies.get(entry.getResponseBodyHash()) : null;
  }
+
+ // Writes pending history changes and response bodies and stops their writer threads
+ public void close() {
+ journal.close();
+ responseBodies.close();
  }
 
- public List<HistoryEntry> getHistory() { return history; }
  public JList<String> getHistoryList() { return historyList; }
 
  private File getHistoryFile() {
@@ -157,33 +277,28 @@ public class HistoryManager {
  private void loadHistory() {
  try {
  File file = getHistoryFile();
- com.rct.util.LogManager.getInstance().log("Loading history from: " + file.getAbsolutePath());
- if (file.exists()) {
+ if (journal.exists()) {
+ com.rct.util.LogManager.getInstance().log("Loading history from: " + com.rct.util.FileManager.getHistoryJournalFile());
+ journal.load(store);
+ } else if (file.exists()) {
+ // history.json from before the journal; carried over once and then left as it is
+ com.rct.util.LogManager.getInstance().log("Migrating history from: " + file.getAbsolutePath());
  HistoryEntry[] entries = objectMapper.readValue(file, HistoryEntry[].class);
- com.rct.util.LogManager.getInstance().log("Loaded " + entries.length + " history entries from file");
- history.clear();
- listModel.clear();
- for (HistoryEntry entry : entries) {
- history.add(entry);
- String displayText = String.format("[%s] %s %s - %d (%dms)",
- entry.getTimestamp(), entry.getMethod(),
- entry.getUrl(), entry.getStatusCode(), entry.getResponseTime());
- listModel.addElement(displayText);
+ for (int i = entries.length - 1; i >= 0; i--) {
+ entries[i].setId(nextEntryId++);
+ store.add(entries[i]);
+ journal.add(entries[i]);
  }
  } else {
  com.rct.util.LogManager.getInstance().log("History file does not exist yet");
+ return;
  }
+ nextEntryId = Math.max(nextEntryId, store.getLastId() + 1);
+ lastEntry = store.get(store.getLastLiveRow());
+ listModel.setQuery(HistoryStore.Query.ALL);
+ com.rct.util.LogManager.getInstance().log("Loaded " + store.getLiveCount() + " history entries from file");
  } catch (Exception e) {
  com.rct.util.LogManager.getInstance().log("Error loading history: " + e.getMessage());
  }
  }
-
- private void saveHistory() {
- try {
- File file = getHistoryFile();
- objectMapper.writeValue(file, history);
- } catch (Exception e) {
- com.rct.util.LogManager.getInstance().log("Error saving history: " + e.getMessage());
- }
- }
 }
@@ -0,0 +1,529 @@
+package com.rct.manager;
+
+import com.rct.util.LogManager;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory index over the history journal. An entry costs a few primitive array slots (id, journal
+ * offset, time, status and dictionary codes for method, host and path); the entry itself stays on
+ * disk and is read back when a row is shown. Searches start from the shortest posting list among
+ * method, host and status, or from the time range found by binary search, and check the remaining
+ * conditions against the arrays, so they never touch the disk.
+ *
+ * Rows are numbered in the order entries were added. The EDT adds, removes and searches while the
+ * journal's writer thread reports where entries landed, so every method is synchronized.
+ */
+final class HistoryStore implements HistoryJournal.Visitor, HistoryJournal.Listener {
+ private static final int ENTRY_CACHE_SIZE = 512;
+
+ private final HistoryJournal journal;
+
+ private int size;
+ private int liveCount;
+ private long[] ids = new long[1024];
+ // -1 until the journal has written the entry; it is in unwritten until then
+ private long[] offsets = new long[1024];
+ private long[] times = new long[1024];
+ private int[] statuses = new int[1024];
+ private int[] methods = new int[1024];
+ private int[] hosts = new int[1024];
+ private int[] paths = new int[1024];
+ private BitSet removed = new BitSet();
+ // Lets a time range be found by binary search; false once the clock has gone backwards
+ private boolean timesAscending = true;
+
+ private Dictionary methodNames = new Dictionary();
+ private Dictionary hostNames = new Dictionary();
+ private Dictionary pathNames = new Dictionary();
+ private NavigableMap<String, Integer> sortedPaths = new TreeMap<>();
+ private List<IntList> rowsByMethod = new ArrayList<>();
+ private List<IntList> rowsByHost = new ArrayList<>();
+ private Map<Integer, IntList> rowsByStatus = new HashMap<>();
+
+ private final Map<Long, HistoryManager.HistoryEntry> unwritten = new HashMap<>();
+ private final Map<Integer, HistoryManager.HistoryEntry> cache =
+         new LinkedHashMap<Integer, HistoryManager.HistoryEntry>(ENTRY_CACHE_SIZE, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, HistoryManager.HistoryEntry> eldest) {
+           return size() > ENTRY_CACHE_SIZE;
+          }
+         };
+
+ HistoryStore(HistoryJournal journal) {
+  this.journal = journal;
+ }
+
+ // Adds a new entry that the journal has not written yet; returns its row
+ synchronized int add(HistoryManager.HistoryEntry entry) {
+  unwritten.put(entry.getId(), entry);
+  return addRow(entry.getId(), -1, entry.getMethod(), entry.getUrl(), entry.getStatusCode(), entry.getTimestamp());
+ }
+
+ synchronized boolean remove(int row) {
+  if (row < 0 || row >= size || removed.get(row)) return false;
+  removed.set(row);
+  liveCount--;
+  unwritten.remove(ids[row]);
+  cache.remove(row);
+  return true;
+ }
+
+ synchronized void clear() {
+  size = 0;
+  liveCount = 0;
+  removed = new BitSet();
+  timesAscending = true;
+  methodNames = new Dictionary();
+  hostNames = new Dictionary();
+  pathNames = new Dictionary();
+  sortedPaths = new TreeMap<>();
+  rowsByMethod = new ArrayList<>();
+  rowsByHost = new ArrayList<>();
+  rowsByStatus = new HashMap<>();
+  unwritten.clear();
+  cache.clear();
+ }
+
+ synchronized int getLiveCount() { return liveCount; }
+ synchronized long getId(int row) { return ids[row]; }
+
+ // Id of the most recently added entry, or 0 if there is none
+ synchronized long getLastId() {
+  return size > 0 ? ids[size - 1] : 0;
+ }
+
+ synchronized int getLastLiveRow() {
+  return size > 0 ? removed.previousClearBit(size - 1) : -1;
+ }
+
+ // Null if the row was removed or its record can no longer be read
+ synchronized HistoryManager.HistoryEntry get(int row) {
+  if (row < 0 || row >= size || removed.get(row)) return null;
+  HistoryManager.HistoryEntry entry = cache.get(row);
+  if (entry == null) {
+   entry = unwritten.get(ids[row]);
+  }
+  if (entry == null) {
+   try {
+    entry = journal.read(offsets[row]);
+   } catch (IOException | RuntimeException e) {
+    LogManager.getInstance().log("Error reading history entry " + ids[row] + ": " + e.getMessage());
+    return null;
+   }
+  }
+  cache.put(row, entry);
+  return entry;
+ }
+
+ // Matching rows, oldest first
+ synchronized IntList search(Query query) {
+  IntList result = new IntList();
+  if (query.method != null && methodNames.find(query.method) < 0) return result;
+  if (query.host != null && hostNames.find(query.host) < 0) return result;
+
+  int from = 0;
+  int to = size;
+  if (timesAscending) {
+   from = lowerBound(query.after);
+   to = query.before == Long.MAX_VALUE ? size : lowerBound(query.before);
+  }
+
+  // Shortest exact-match posting list, if it beats the row range
+  IntList postings = null;
+  if (query.method != null) {
+   postings = shorter(postings, rowsByMethod.get(methodNames.find(query.method)));
+  }
+  if (query.host != null) {
+   postings = shorter(postings, rowsByHost.get(hostNames.find(query.host)));
+  }
+  if (query.statusMin == query.statusMax) {
+   IntList byStatus = rowsByStatus.get(query.statusMin);
+   if (byStatus == null) return result;
+   postings = shorter(postings, byStatus);
+  }
+
+  BitSet pathCodes = null;
+  if (query.pathPrefix != null) {
+   pathCodes = new BitSet();
+   for (int code : sortedPaths.subMap(query.pathPrefix, true, query.pathPrefix + Character.MAX_VALUE, true).values()) {
+    pathCodes.set(code);
+   }
+   if (pathCodes.isEmpty()) return result;
+  }
+  BitSet textHosts = null;
+  BitSet textPaths = null;
+  if (query.text != null) {
+   textHosts = hostNames.containing(query.text);
+   textPaths = pathNames.containing(query.text);
+   if (textHosts.isEmpty() && textPaths.isEmpty()) return result;
+  }
+
+  int methodCode = query.method != null ? methodNames.find(query.method) : -1;
+  int hostCode = query.host != null ? hostNames.find(query.host) : -1;
+  if (postings != null && postings.size() < to - from) {
+   for (int i = 0; i < postings.size(); i++) {
+    int row = postings.get(i);
+    if (row >= from && row < to && matches(row, query, methodCode, hostCode, pathCodes, textHosts, textPaths)) {
+     result.add(row);
+    }
+   }
+  } else {
+   for (int row = from; row < to; row++) {
+    if (matches(row, query, methodCode, hostCode, pathCodes, textHosts, textPaths)) {
+     result.add(row);
+    }
+   }
+  }
+  return result;
+ }
+
+ // Whether a single row satisfies query, e.g. to decide if a new entry joins the current results
+ synchronized boolean matches(int row, Query query) {
+  if (row < 0 || row >= size || removed.get(row)) return false;
+  String host = hostNames.value(hosts[row]);
+  String path = pathNames.value(paths[row]);
+  return (query.method == null || query.method.equals(methodNames.value(methods[row])))
+          && (query.host == null || query.host.equals(host))
+          && (query.pathPrefix == null || path.startsWith(query.pathPrefix))
+          && statuses[row] >= query.statusMin && statuses[row] <= query.statusMax
+          && times[row] >= query.after && times[row] < query.before
+          && (query.text == null || host.contains(query.text) || path.toLowerCase(Locale.ROOT).contains(query.text));
+ }
+
+ private boolean matches(int row, Query query, int methodCode, int hostCode, BitSet pathCodes,
+                         BitSet textHosts, BitSet textPaths) {
+  if (removed.get(row)) return false;
+  if (methodCode >= 0 && methods[row] != methodCode) return false;
+  if (hostCode >= 0 && hosts[row] != hostCode) return false;
+  if (statuses[row] < query.statusMin || statuses[row] > query.statusMax) return false;
+  if (times[row] < query.after || times[row] >= query.before) return false;
+  if (pathCodes != null && !pathCodes.get(paths[row])) return false;
+  return textHosts == null || textHosts.get(hosts[row]) || textPaths.get(paths[row]);
+ }
+
+ // First row at or after time
+ private int lowerBound(long time) {
+  int low = 0;
+  int high = size;
+  while (low < high) {
+   int mid = (low + high) >>> 1;
+   if (times[mid] < time) low = mid + 1; else high = mid;
+  }
+  return low;
+ }
+
+ private static IntList shorter(IntList current, IntList candidate) {
+  return current == null || candidate.size() < current.size() ? candidate : current;
+ }
+
+ // Journal replay at startup
+
+ @Override
+ public synchronized void added(long id, String method, String url, int statusCode, String timestamp, long offset) {
+  addRow(id, offset, method, url, statusCode, timestamp);
+ }
+
+ @Override
+ public synchronized void removed(long id) {
+  remove(rowOf(id));
+ }
+
+ @Override
+ public synchronized void cleared() {
+  clear();
+ }
+
+ // Journal writer callbacks
+
+ @Override
+ public synchronized void written(long[] writtenIds, long[] writtenOffsets, int count) {
+  for (int i = 0; i < count; i++) {
+   int row = rowOf(writtenIds[i]);
+   if (row >= 0) {
+    offsets[row] = writtenOffsets[i];
+   }
+   unwritten.remove(writtenIds[i]);
+  }
+ }
+
+ @Override
+ public synchronized void compacted(Runnable swap, long[] liveIds, long[] liveOffsets, int count) {
+  swap.run();
+  for (int i = 0; i < count; i++) {
+   int row = rowOf(liveIds[i]);
+   if (row >= 0) {
+    offsets[row] = liveOffsets[i];
+   }
+  }
+ }
+
+ // Ids grow with the row number
+ private int rowOf(long id) {
+  int row = Arrays.binarySearch(ids, 0, size, id);
+  return row >= 0 ? row : -1;
+ }
+
+ private int addRow(long id, long offset, String method, String url, int status, String timestamp) {
+  if (size == ids.length) {
+   int capacity = size * 2;
+   ids = Arrays.copyOf(ids, capacity);
+   offsets = Arrays.copyOf(offsets, capacity);
+   times = Arrays.copyOf(times, capacity);
+   statuses = Arrays.copyOf(statuses, capacity);
+   methods = Arrays.copyOf(methods, capacity);
+   hosts = Arrays.copyOf(hosts, capacity);
+   paths = Arrays.copyOf(paths, capacity);
+  }
+  int row = size++;
+  liveCount++;
+  String[] hostAndPath = splitUrl(url);
+  long time = parseTimestamp(timestamp);
+  if (row > 0 && time < times[row - 1]) {
+   timesAscending = false;
+  }
+
+  ids[row] = id;
+  offsets[row] = offset;
+  times[row] = time;
+  statuses[row] = status;
+  methods[row] = methodNames.code(method != null ? method.toUpperCase(Locale.ROOT) : "");
+  hosts[row] = hostNames.code(hostAndPath[0]);
+  int pathCount = pathNames.size();
+  int pathCode = pathNames.code(hostAndPath[1]);
+  paths[row] = pathCode;
+  if (pathCode == pathCount) {
+   sortedPaths.put(hostAndPath[1], pathCode);
+  }
+
+  postingsFor(rowsByMethod, methods[row]).add(row);
+  postingsFor(rowsByHost, hosts[row]).add(row);
+  rowsByStatus.computeIfAbsent(status, s -> new IntList()).add(row);
+  return row;
+ }
+
+ private static IntList postingsFor(List<IntList> lists, int code) {
+  while (lists.size() <= code) {
+   lists.add(new IntList());
+  }
+  return lists.get(code);
+ }
+
+ // Lower-case host and the path without query or fragment; tolerates {{variables}} and missing schemes
+ static String[] splitUrl(String url) {
+  if (url == null) return new String[] {"", "/"};
+  int start = url.indexOf("://");
+  start = start >= 0 ? start + 3 : 0;
+  int hostEnd = start;
+  while (hostEnd < url.length() && "/?#".indexOf(url.charAt(hostEnd)) < 0) {
+   hostEnd++;
+  }
+  int pathEnd = hostEnd;
+  while (pathEnd < url.length() && "?#".indexOf(url.charAt(pathEnd)) < 0) {
+   pathEnd++;
+  }
+  String path = url.substring(hostEnd, pathEnd);
+  return new String[] {url.substring(start, hostEnd).toLowerCase(Locale.ROOT), path.isEmpty() ? "/" : path};
+ }
+
+ // "yyyy-MM-dd HH:mm:ss" local time, as HistoryEntry writes it; 0 for anything else. This runs for
+ // every entry at startup, so the zone conversion is done once per hour rather than per entry.
+ private String lastHour = "";
+ private long lastHourMillis;
+
+ private long parseTimestamp(String timestamp) {
+  if (timestamp == null || timestamp.length() != 19) return 0;
+  if (!timestamp.regionMatches(0, lastHour, 0, 13)) {
+   lastHour = timestamp.substring(0, 13);
+   lastHourMillis = parseLocalTime(lastHour + ":00:00");
+  }
+  if (lastHourMillis == 0) return 0;
+  try {
+   return lastHourMillis + (Integer.parseInt(timestamp, 14, 16, 10) * 60L + Integer.parseInt(timestamp, 17, 19, 10)) * 1000;
+  } catch (NumberFormatException e) {
+   return 0;
+  }
+ }
+
+ private static long parseLocalTime(String timestamp) {
+  if (timestamp == null || timestamp.length() != 19) return 0;
+  try {
+   LocalDateTime time = LocalDateTime.of(
+           Integer.parseInt(timestamp, 0, 4, 10), Integer.parseInt(timestamp, 5, 7, 10),
+           Integer.parseInt(timestamp, 8, 10, 10), Integer.parseInt(timestamp, 11, 13, 10),
+           Integer.parseInt(timestamp, 14, 16, 10), Integer.parseInt(timestamp, 17, 19, 10));
+   return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  } catch (NumberFormatException | DateTimeException e) {
+   return 0;
+  }
+ }
+
+ /**
+  * Search box syntax, terms separated by spaces and all required to match:
+  *
+  *   GET, method:get        method
+  *   host:api.example.com   host
+  *   /users, path:/users    path prefix
+  *   404, 4xx, status:5xx   status or status class
+  *   after:2024-05-01       entries on or after the date (or "yyyy-MM-dd HH:mm:ss")
+  *   before:2024-06-01      entries before the date
+  *   anything else          text in the host or path
+  */
+ static final class Query {
+  static final Query ALL = parse("");
+
+  private String method;
+  private String host;
+  private String pathPrefix;
+  private int statusMin = Integer.MIN_VALUE;
+  private int statusMax = Integer.MAX_VALUE;
+  private long after = Long.MIN_VALUE;
+  private long before = Long.MAX_VALUE;
+  private String text;
+  private boolean empty = true;
+
+  static Query parse(String input) {
+   Query query = new Query();
+   for (String term : input.trim().split("\\s+")) {
+    if (term.isEmpty()) continue;
+    query.empty = false;
+    int colon = term.indexOf(':');
+    String key = colon > 0 ? term.substring(0, colon).toLowerCase(Locale.ROOT) : "";
+    String value = colon > 0 ? term.substring(colon + 1) : term;
+    switch (key) {
+     case "method":
+      query.method = value.toUpperCase(Locale.ROOT);
+      break;
+     case "host":
+      query.host = value.toLowerCase(Locale.ROOT);
+      break;
+     case "path":
+      query.pathPrefix = value;
+      break;
+     case "status":
+      if (!query.setStatus(value)) query.text = term.toLowerCase(Locale.ROOT);
+      break;
+     case "after":
+      query.after = parseDate(value, Long.MIN_VALUE);
+      break;
+     case "before":
+      query.before = parseDate(value, Long.MAX_VALUE);
+      break;
+     default:
+      if (term.startsWith("/")) {
+       query.pathPrefix = term;
+      } else if (term.matches("(?i)GET|POST|PUT|PATCH|DELETE|HEAD|OPTIONS")) {
+       query.method = term.toUpperCase(Locale.ROOT);
+      } else if (!query.setStatus(term)) {
+       query.text = term.toLowerCase(Locale.ROOT);
+      }
+    }
+   }
+   return query;
+  }
+
+  boolean isEmpty() { return empty; }
+
+  // "404" or "4xx"
+  private boolean setStatus(String value) {
+   if (value.matches("\\d{3}")) {
+    statusMin = statusMax = Integer.parseInt(value);
+    return true;
+   }
+   if (value.matches("(?i)\\dxx")) {
+    statusMin = (value.charAt(0) - '0') * 100;
+    statusMax = statusMin + 99;
+    return true;
+   }
+   return false;
+  }
+
+  private static long parseDate(String value, long fallback) {
+   String text = value.replace('T', ' ');
+   try {
+    if (text.length() == 10) {
+     return LocalDate.parse(text).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    return parseLocalTime(text);
+   } catch (DateTimeParseException e) {
+    return fallback;
+   }
+  }
+ }
+
+ private static final class Dictionary {
+  private final List<String> values = new ArrayList<>();
+  private final Map<String, Integer> codes = new HashMap<>();
+
+  int code(String value) {
+   Integer code = codes.get(value);
+   if (code == null) {
+    code = values.size();
+    values.add(value);
+    codes.put(value, code);
+   }
+   return code;
+  }
+
+  int size() {
+   return values.size();
+  }
+
+  String value(int code) {
+   return values.get(code);
+  }
+
+  int find(String value) {
+   Integer code = codes.get(value);
+   return code != null ? code : -1;
+  }
+
+  // Codes of the values that contain text, ignoring case
+  BitSet containing(String text) {
+   BitSet result = new BitSet();
+   for (int code = 0; code < values.size(); code++) {
+    if (values.get(code).toLowerCase(Locale.ROOT).contains(text)) {
+     result.set(code);
+    }
+   }
+   return result;
+  }
+ }
+
+ // Growable list of rows without boxing
+ static final class IntList {
+  private int[] values = new int[16];
+  private int size;
+
+  void add(int value) {
+   if (size == values.length) {
+    values = Arrays.copyOf(values, size * 2);
+   }
+   values[size++] = value;
+  }
+
+  // Removes the value at index, shifting later values down
+  void removeAt(int index) {
+   System.arraycopy(values, index + 1, values, index, size - index - 1);
+   size--;
+  }
+
+  int get(int index) { return values[index]; }
+  int size() { return size; }
+ }
+}
@@ -0,0 +1,22 @@
+package com.rct.service;
+
+import com.rct.model.RestResponse;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport used by RestClientService to put a fully resolved request on the wire.
+ * Implementations are shared between threads and should reuse connections.
+ */
+public interface HttpEngine {
+
+ RestResponse execute(String method, String url, Map<String, String> headers,
+                      Map<String, String> params, String body) throws Exception;
+
+ // Must not block the caller; the future completes exceptionally on transport failures
+ CompletableFuture<RestResponse> executeAsync(String method, String url, Map<String, String> headers,
+                                              Map<String, String> params, String body) throws Exception;
+
+ void shutdown();
+}
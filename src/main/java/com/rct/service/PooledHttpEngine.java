@@ -0,0 +1,290 @@
+package com.rct.service;
+
+import com.rct.model.RestResponse;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpEngine backed by Apache HttpClient with pooled connection managers, so keep-alive
+ * connections (and their TLS sessions) survive between requests. Blocking calls use the
+ * classic client; async calls use a non-blocking client started on first use.
+ */
+public class PooledHttpEngine implements HttpEngine {
+ public static final int DEFAULT_MAX_TOTAL = 200;
+ public static final int DEFAULT_MAX_PER_ROUTE = 50;
+ public static final long DEFAULT_KEEP_ALIVE_MS = 30_000;
+ public static final long DEFAULT_IDLE_EVICTION_MS = 60_000;
+ public static final int DEFAULT_CONNECT_TIMEOUT_MS = 30_000;
+
+ private static final Set<String> SUPPORTED_METHODS = new HashSet<>(
+         Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS"));
+ private static final Set<String> BODY_METHODS = new HashSet<>(Arrays.asList("POST", "PUT", "PATCH"));
+
+ private static PooledHttpEngine instance;
+
+ private final int maxTotal;
+ private final int maxPerRoute;
+ private final long keepAliveMs;
+ private final long idleEvictionMs;
+ private final RequestConfig requestConfig;
+ private final PoolingHttpClientConnectionManager connectionManager;
+ private final CloseableHttpClient httpClient;
+
+ private volatile CloseableHttpAsyncClient asyncClient;
+ private ScheduledExecutorService asyncEvictor;
+
+ public PooledHttpEngine() {
+  this(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_KEEP_ALIVE_MS, DEFAULT_IDLE_EVICTION_MS);
+ }
+
+ public PooledHttpEngine(int maxTotal, int maxPerRoute, long keepAliveMs, long idleEvictionMs) {
+  this.maxTotal = Math.max(1, maxTotal);
+  this.maxPerRoute = Math.max(1, Math.min(maxPerRoute, maxTotal));
+  this.keepAliveMs = keepAliveMs;
+  this.idleEvictionMs = idleEvictionMs;
+
+  connectionManager = new PoolingHttpClientConnectionManager();
+  connectionManager.setMaxTotal(this.maxTotal);
+  connectionManager.setDefaultMaxPerRoute(this.maxPerRoute);
+  connectionManager.setValidateAfterInactivity(2_000);
+
+  requestConfig = RequestConfig.custom()
+          .setConnectTimeout(DEFAULT_CONNECT_TIMEOUT_MS)
+          .build();
+
+  httpClient = HttpClients.custom()
+          .setConnectionManager(connectionManager)
+          .setKeepAliveStrategy(keepAliveStrategy(keepAliveMs))
+          .setDefaultRequestConfig(requestConfig)
+          .disableCookieManagement()
+          .evictExpiredConnections()
+          .evictIdleConnections(idleEvictionMs, TimeUnit.MILLISECONDS)
+          .build();
+ }
+
+ public static synchronized PooledHttpEngine getInstance() {
+  if (instance == null) {
+   instance = new PooledHttpEngine();
+  }
+  return instance;
+ }
+
+ @Override
+ public RestResponse execute(String method, String url, Map<String, String> headers,
+                             Map<String, String> params, String body) throws Exception {
+  return httpClient.execute(buildRequest(method, url, headers, params, body), PooledHttpEngine::toRestResponse);
+ }
+
+ @Override
+ public CompletableFuture<RestResponse> executeAsync(String method, String url, Map<String, String> headers,
+                                                     Map<String, String> params, String body) throws Exception {
+  HttpUriRequest request = buildRequest(method, url, headers, params, body);
+  CompletableFuture<RestResponse> result = new CompletableFuture<>();
+
+  Future<HttpResponse> exchange = getAsyncClient().execute(request, new FutureCallback<HttpResponse>() {
+   @Override
+   public void completed(HttpResponse response) {
+    try {
+     result.complete(toRestResponse(response));
+    } catch (Exception e) {
+     result.completeExceptionally(e);
+    }
+   }
+
+   @Override
+   public void failed(Exception e) {
+    result.completeExceptionally(e);
+   }
+
+   @Override
+   public void cancelled() {
+    result.cancel(false);
+   }
+  });
+
+  result.whenComplete((response, error) -> {
+   if (result.isCancelled()) {
+    exchange.cancel(true);
+   }
+  });
+  return result;
+ }
+
+ @Override
+ public void shutdown() {
+  try {
+   httpClient.close();
+  } catch (Exception e) {
+   // Pool is being discarded anyway
+  }
+
+  synchronized (this) {
+   if (asyncEvictor != null) {
+    asyncEvictor.shutdownNow();
+   }
+   if (asyncClient != null) {
+    try {
+     asyncClient.close();
+    } catch (Exception e) {
+     // Pool is being discarded anyway
+    }
+   }
+  }
+ }
+
+ private CloseableHttpAsyncClient getAsyncClient() throws IOException {
+  CloseableHttpAsyncClient existing = asyncClient;
+  if (existing != null) {
+   return existing;
+  }
+
+  synchronized (this) {
+   if (asyncClient == null) {
+    IOReactorConfig reactorConfig = IOReactorConfig.custom()
+            .setIoThreadCount(Runtime.getRuntime().availableProcessors())
+            .setConnectTimeout(DEFAULT_CONNECT_TIMEOUT_MS)
+            .build();
+
+    PoolingNHttpClientConnectionManager asyncConnectionManager =
+            new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+    asyncConnectionManager.setMaxTotal(maxTotal);
+    asyncConnectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+    CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+            .setConnectionManager(asyncConnectionManager)
+            .setKeepAliveStrategy(keepAliveStrategy(keepAliveMs))
+            .setDefaultRequestConfig(requestConfig)
+            .disableCookieManagement()
+            .build();
+    client.start();
+
+    // The NIO pool has no built-in evictor thread, so sweep it on the same schedule
+    asyncEvictor = Executors.newSingleThreadScheduledExecutor(r -> {
+     Thread thread = new Thread(r, "async-connection-evictor");
+     thread.setDaemon(true);
+     return thread;
+    });
+    long sweepMs = Math.max(1_000, idleEvictionMs / 2);
+    asyncEvictor.scheduleWithFixedDelay(() -> {
+     asyncConnectionManager.closeExpiredConnections();
+     asyncConnectionManager.closeIdleConnections(idleEvictionMs, TimeUnit.MILLISECONDS);
+    }, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+
+    asyncClient = client;
+   }
+   return asyncClient;
+  }
+ }
+
+ private static HttpUriRequest buildRequest(String method, String url, Map<String, String> headers,
+                                            Map<String, String> params, String body) throws Exception {
+  String upperMethod = method.toUpperCase();
+  if (!SUPPORTED_METHODS.contains(upperMethod)) {
+   throw new IllegalArgumentException("Unsupported HTTP method: " + method);
+  }
+
+  URIBuilder uriBuilder = new URIBuilder(url);
+  if (params != null) {
+   params.forEach(uriBuilder::addParameter);
+  }
+
+  RequestBuilder request = RequestBuilder.create(upperMethod).setUri(uriBuilder.build());
+  String contentType = null;
+  if (headers != null) {
+   for (Map.Entry<String, String> entry : headers.entrySet()) {
+    request.addHeader(entry.getKey(), entry.getValue());
+    if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(entry.getKey())) {
+     contentType = entry.getValue();
+    }
+   }
+  }
+
+  if (body != null && !body.trim().isEmpty() && BODY_METHODS.contains(upperMethod)) {
+   request.setEntity(new StringEntity(body, requestCharset(contentType)));
+  }
+  return request.build();
+ }
+
+ private static RestResponse toRestResponse(HttpResponse response) throws IOException {
+  RestResponse restResponse = new RestResponse();
+  restResponse.setStatusCode(response.getStatusLine().getStatusCode());
+  restResponse.setStatusText(response.getStatusLine().toString());
+
+  Map<String, String> responseHeaders = new HashMap<>();
+  for (Header header : response.getAllHeaders()) {
+   responseHeaders.put(header.getName(), header.getValue());
+  }
+  restResponse.setHeaders(responseHeaders);
+
+  HttpEntity entity = response.getEntity();
+  restResponse.setBody(entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "");
+  return restResponse;
+ }
+
+ private static Charset requestCharset(String contentType) {
+  if (contentType != null) {
+   try {
+    Charset charset = ContentType.parse(contentType).getCharset();
+    if (charset != null) {
+     return charset;
+    }
+   } catch (Exception e) {
+    // Fall back to UTF-8 for malformed content types
+   }
+  }
+  return StandardCharsets.UTF_8;
+ }
+
+ private static ConnectionKeepAliveStrategy keepAliveStrategy(long defaultKeepAliveMs) {
+  return (response, context) -> {
+   // Honour the server's Keep-Alive timeout when it sends one
+   BasicHeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator("Keep-Alive"));
+   while (it.hasNext()) {
+    HeaderElement element = it.nextElement();
+    if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+     try {
+      return Long.parseLong(element.getValue()) * 1000;
+     } catch (NumberFormatException e) {
+      break;
+     }
+    }
+   }
+   return defaultKeepAliveMs;
+  };
+ }
+}
@@ -0,0 +1,277 @@
+package com.rct.service;
+
+import com.rct.model.RestResponse;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of RestClientService. Each request is gated by its target host and,
+ * optionally, by the collection it came from; a gate caps the requests it has in flight and the
+ * rate at which new ones start (token bucket). Requests blocked on one gate do not hold up requests
+ * for other hosts. submit() never blocks: waiting requests are queued and started as capacity frees.
+ */
+public class RequestScheduler {
+
+ public static class Limits {
+  // 0 means unlimited for every setting
+  private int maxInFlightPerHost;
+  private double maxRpsPerHost;
+  private int maxInFlightPerCollection;
+  private double maxRpsPerCollection;
+
+  public int getMaxInFlightPerHost() { return maxInFlightPerHost; }
+  public double getMaxRpsPerHost() { return maxRpsPerHost; }
+  public int getMaxInFlightPerCollection() { return maxInFlightPerCollection; }
+  public double getMaxRpsPerCollection() { return maxRpsPerCollection; }
+
+  public void setMaxInFlightPerHost(int maxInFlightPerHost) { this.maxInFlightPerHost = Math.max(0, maxInFlightPerHost); }
+  public void setMaxRpsPerHost(double maxRpsPerHost) { this.maxRpsPerHost = Math.max(0, maxRpsPerHost); }
+  public void setMaxInFlightPerCollection(int maxInFlightPerCollection) { this.maxInFlightPerCollection = Math.max(0, maxInFlightPerCollection); }
+  public void setMaxRpsPerCollection(double maxRpsPerCollection) { this.maxRpsPerCollection = Math.max(0, maxRpsPerCollection); }
+
+  public boolean isUnlimited() {
+   return maxInFlightPerHost == 0 && maxRpsPerHost == 0 && maxInFlightPerCollection == 0 && maxRpsPerCollection == 0;
+  }
+ }
+
+ private final RestClientService service;
+ private final Limits limits;
+ private final Map<String, Gate> hostGates = new HashMap<>();
+ private final Map<String, Gate> collectionGates = new HashMap<>();
+ private final ArrayDeque<PendingRequest> waiting = new ArrayDeque<>();
+ private final ScheduledExecutorService timer;
+ private ScheduledFuture<?> wakeUp;
+ private long wakeUpAt;
+
+ public RequestScheduler(RestClientService service, Limits limits) {
+  this.service = service;
+  this.limits = limits;
+  this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+   Thread thread = new Thread(r, "request-scheduler");
+   thread.setDaemon(true);
+   return thread;
+  });
+ }
+
+ public CompletableFuture<RestResponse> submit(String method, String url, Map<String, String> headers,
+                                               Map<String, String> params, String body) {
+  return submit(null, method, url, headers, params, body);
+ }
+
+ // collection may be null for requests that do not belong to one
+ public CompletableFuture<RestResponse> submit(String collection, String method, String url, Map<String, String> headers,
+                                               Map<String, String> params, String body) {
+  if (limits.isUnlimited()) {
+   return service.sendRequestAsync(method, url, headers, params, body);
+  }
+
+  PendingRequest request = new PendingRequest(method, url, headers, params, body);
+  request.hostGate = gateFor(hostGates, hostOf(url), limits.getMaxInFlightPerHost(), limits.getMaxRpsPerHost());
+  if (collection != null) {
+   request.collectionGate = gateFor(collectionGates, collection,
+           limits.getMaxInFlightPerCollection(), limits.getMaxRpsPerCollection());
+  }
+
+  synchronized (this) {
+   waiting.add(request);
+  }
+  dispatch();
+  return request.result;
+ }
+
+ public synchronized int getWaitingCount() {
+  return waiting.size();
+ }
+
+ public void shutdown() {
+  timer.shutdownNow();
+  List<PendingRequest> abandoned;
+  synchronized (this) {
+   abandoned = new ArrayList<>(waiting);
+   waiting.clear();
+  }
+  for (PendingRequest request : abandoned) {
+   request.result.cancel(false);
+  }
+ }
+
+ // Starts every waiting request whose gates have room, oldest first
+ private void dispatch() {
+  List<PendingRequest> ready = new ArrayList<>();
+  synchronized (this) {
+   long now = System.nanoTime();
+   long earliestToken = Long.MAX_VALUE;
+   Iterator<PendingRequest> it = waiting.iterator();
+   while (it.hasNext()) {
+    PendingRequest request = it.next();
+    if (request.result.isDone()) {
+     // Cancelled while waiting
+     it.remove();
+     continue;
+    }
+    long wait = Math.max(request.hostGate.nanosUntilAdmit(now),
+            request.collectionGate != null ? request.collectionGate.nanosUntilAdmit(now) : 0);
+    if (wait == 0) {
+     request.hostGate.admit(now);
+     if (request.collectionGate != null) {
+      request.collectionGate.admit(now);
+     }
+     it.remove();
+     ready.add(request);
+    } else if (wait != Long.MAX_VALUE) {
+     earliestToken = Math.min(earliestToken, wait);
+    }
+   }
+   // Requests held back only by the rate limit need a timer; in-flight limits are released on completion
+   if (earliestToken != Long.MAX_VALUE) {
+    scheduleWakeUp(now + earliestToken);
+   }
+  }
+
+  for (PendingRequest request : ready) {
+   start(request);
+  }
+ }
+
+ private void scheduleWakeUp(long at) {
+  if (wakeUp != null && wakeUpAt <= at) return;
+  if (wakeUp != null) {
+   wakeUp.cancel(false);
+  }
+  wakeUpAt = at;
+  try {
+   wakeUp = timer.schedule(() -> {
+    synchronized (this) {
+     wakeUp = null;
+    }
+    dispatch();
+   }, Math.max(0, at - System.nanoTime()), TimeUnit.NANOSECONDS);
+  } catch (RejectedExecutionException e) {
+   // Shut down; waiting requests have been cancelled
+  }
+ }
+
+ private void start(PendingRequest request) {
+  CompletableFuture<RestResponse> pending;
+  try {
+   pending = service.sendRequestAsync(request.method, request.url, request.headers, request.params, request.body);
+  } catch (RuntimeException e) {
+   pending = new CompletableFuture<>();
+   pending.completeExceptionally(e);
+  }
+
+  CompletableFuture<RestResponse> exchange = pending;
+  exchange.whenComplete((response, error) -> {
+   synchronized (this) {
+    request.hostGate.release();
+    if (request.collectionGate != null) {
+     request.collectionGate.release();
+    }
+   }
+   if (error != null) {
+    request.result.completeExceptionally(error);
+   } else {
+    request.result.complete(response);
+   }
+   dispatch();
+  });
+  // Cancelling the caller's future aborts the exchange, as with RestClientService itself
+  request.result.whenComplete((response, error) -> {
+   if (request.result.isCancelled()) {
+    exchange.cancel(true);
+   }
+  });
+ }
+
+ private synchronized Gate gateFor(Map<String, Gate> gates, String key, int maxInFlight, double maxRps) {
+  return gates.computeIfAbsent(key, k -> new Gate(maxInFlight, maxRps));
+ }
+
+ private String hostOf(String url) {
+  String resolved = service.resolveVariables(url);
+  if (resolved == null) return "";
+  try {
+   URI uri = URI.create(resolved.trim());
+   if (uri.getHost() != null) {
+    return uri.getHost().toLowerCase() + (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+   }
+  } catch (IllegalArgumentException e) {
+   // Not a valid URI; fall through and let the request fail when it is sent
+  }
+  return resolved;
+ }
+
+ // In-flight cap plus token bucket for one host or collection; guarded by the scheduler's lock
+ private static class Gate {
+  private final int maxInFlight;
+  private final double ratePerNano;
+  private final double burst;
+  private int inFlight;
+  private double tokens;
+  private long lastRefill = System.nanoTime();
+
+  Gate(int maxInFlight, double maxRps) {
+   this.maxInFlight = maxInFlight;
+   this.ratePerNano = maxRps / 1e9;
+   // Allow up to one second's worth of requests to start back to back
+   this.burst = Math.max(1, maxRps);
+   this.tokens = burst;
+  }
+
+  // 0 if a request may start now, Long.MAX_VALUE if it must wait for an in-flight request to finish
+  long nanosUntilAdmit(long now) {
+   if (maxInFlight > 0 && inFlight >= maxInFlight) return Long.MAX_VALUE;
+   if (ratePerNano == 0) return 0;
+   refill(now);
+   return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / ratePerNano);
+  }
+
+  void admit(long now) {
+   inFlight++;
+   if (ratePerNano > 0) {
+    refill(now);
+    tokens -= 1;
+   }
+  }
+
+  void release() {
+   inFlight--;
+  }
+
+  private void refill(long now) {
+   tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+   lastRefill = now;
+  }
+ }
+
+ private static class PendingRequest {
+  final String method;
+  final String url;
+  final Map<String, String> headers;
+  final Map<String, String> params;
+  final String body;
+  final CompletableFuture<RestResponse> result = new CompletableFuture<>();
+  Gate hostGate;
+  Gate collectionGate;
+
+  PendingRequest(String method, String url, Map<String, String> headers, Map<String, String> params, String body) {
+   this.method = method;
+   this.url = url;
+   this.headers = headers;
+   this.params = params;
+   this.body = body;
+  }
+ }
+}
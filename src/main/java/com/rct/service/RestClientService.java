@@ -1,104 +1,160 @@
 package com.rct.service;
 
 import com.rct.manager.EnvironmentManager;
+import com.rct.manager.EnvironmentSnapshot;
 import com.rct.model.RestResponse;
 import com.rct.util.JsonFormatter;
 import com.rct.util.LogManager;
-import io.restassured.RestAssured;
-import io.restassured.response.Response;
-import io.restassured.specification.RequestSpecification;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class RestClientService {
  private EnvironmentManager environmentManager;
+ // When set, variables resolve against this fixed version instead of the manager's latest
+ private final EnvironmentSnapshot environmentSnapshot;
+ private final HttpEngine httpEngine;
 
  public RestClientService() {
- this.environmentManager = null;
+ this((EnvironmentManager) null, PooledHttpEngine.getInstance());
  }
 
  public RestClientService(EnvironmentManager environmentManager) {
+ this(environmentManager, PooledHttpEngine.getInstance());
+ }
+
+ public RestClientService(EnvironmentManager environmentManager, HttpEngine httpEngine) {
  this.environmentManager = environmentManager;
+ this.environmentSnapshot = null;
+ this.httpEngine = httpEngine;
+ }
+
+ // For runners: edits made to environments while they run do not change the requests they send
+ public RestClientService(EnvironmentSnapshot environmentSnapshot) {
+ this(environmentSnapshot, PooledHttpEngine.getInstance());
+ }
+
+ public RestClientService(EnvironmentSnapshot environmentSnapshot, HttpEngine httpEngine) {
+ this.environmentSnapshot = environmentSnapshot;
+ this.httpEngine = httpEngine;
  }
 
  public RestResponse sendRequest(String method, String url, Map<String, String> headers,
  Map<String, String> params, String body) {
+ ResolvedRequest request = resolveRequest(method, url, headers, params, body);
+
+ try {
+ logRequest(request);
+ RestResponse response = httpEngine.execute(request.method, request.url,
+ request.headers, request.params, request.body);
+ return completeResponse(response);
+ } catch (Exception e) {
+ return errorResponse(e);
+ }
+ }
+
+ // Non-blocking variant: the calling thread returns as soon as the request is queued on the engine
+ public CompletableFuture<RestResponse> sendRequestAsync(String method, String url, Map<String, String> headers,
+ Map<String, String> params, String body) {
+ ResolvedRequest request = resolveRequest(method, url, headers, params, body);
+
+ CompletableFuture<RestResponse> pending;
+ try {
+ logRequest(request);
+ pending = httpEngine.executeAsync(request.method, request.url,
+ request.headers, request.params, request.body);
+ } catch (Exception e) {
+ return CompletableFuture.completedFuture(errorResponse(e));
+ }
+
+ // Response formatting can be expensive for large bodies, keep it off the engine's I/O threads
+ CompletableFuture<RestResponse> result = pending.handleAsync((response, error) ->
+ error == null ? completeResponse(response) : errorResponse(unwrap(error)));
+
+ // Cancelling the returned future aborts the underlying exchange
+ result.whenComplete((response, error) -> {
+ if (result.isCancelled()) {
+ pending.cancel(true);
+ }
+ });
+ return result;
+ }
+
+ private ResolvedRequest resolveRequest(String method, String url, Map<String, String> headers,
+ Map<String, String> params, String body) {
+ ResolvedRequest request = new ResolvedRequest();
+ request.method = method;
+
  // Resolve environment variables
- url = resolveVariables(url);
- body = resolveVariables(body);
+ request.url = resolveVariables(url);
+ request.body = resolveVariables(body);
 
  // Resolve variables in headers
- Map<String, String> resolvedHeaders = new HashMap<>();
+ request.headers = new HashMap<>();
  if (headers != null) {
  for (Map.Entry<String, String> entry : headers.entrySet()) {
- resolvedHeaders.put(resolveVariables(entry.getKey()), resolveVariables(entry.getValue()));
+ request.headers.put(resolveVariables(entry.getKey()), resolveVariables(entry.getValue()));
  }
  }
 
  // Resolve variables in params
- Map<String, String> resolvedParams = new HashMap<>();
+ request.params = new HashMap<>();
  if (params != null) {
  for (Map.Entry<String, String> entry : params.entrySet()) {
- resolvedParams.put(resolveVariables(entry.getKey()), resolveVariables(entry.getValue()));
+ request.params.put(resolveVariables(entry.getKey()), resolveVariables(entry.getValue()));
  }
  }
+ return request;
+ }
 
+ private void logRequest(ResolvedRequest request) {
  LogManager logger = LogManager.getInstance();
  logger.log("======== REQUEST DETAILS ========");
- logger.log("Method: " + method);
- logger.log("URL: " + url);
-
- try {
- RequestSpecification request = RestAssured.given();
+ logger.log("Method: " + request.method);
+ logger.log("URL: " + request.url);
 
- if (resolvedHeaders != null && !resolvedHeaders.isEmpty()) {
- logger.log("Headers (" + resolvedHeaders.size() + "):");
- resolvedHeaders.forEach((k, v) -> logger.log(" " + k + ": " + v));
- request.headers(resolvedHeaders);
+ if (!request.headers.isEmpty()) {
+ logger.log("Headers (" + request.headers.size() + "):");
+ request.headers.forEach((k, v) -> logger.log(" " + k + ": " + v));
  } else {
  logger.log("Headers: None");
  }
 
- if (resolvedParams != null && !resolvedParams.isEmpty()) {
- logger.log("Query Parameters (" + resolvedParams.size() + "):");
- resolvedParams.forEach((k, v) -> logger.log(" " + k + "=" + v));
-  request.queryParams(resolvedParams);
+ if (!request.params.isEmpty()) {
+ logger.log("Query Parameters (" + request.params.size() + "):");
+ request.params.forEach((k, v) -> logger.log(" " + k + "=" + v));
  } else {
  logger.log("Query Parameters: None");
  }
 
+ String body = request.body;
+ String method = request.method;
  if (body != null && !body.trim().isEmpty() &&
  (method.equalsIgnoreCase("POST") || method.equalsIgnoreCase("PUT") ||
  method.equalsIgnoreCase("PATCH"))) {
  logger.log("Request Body (" + body.length() + " characters):");
  logger.log(body);
- request.body(body);
-  } else {
+ } else {
  logger.log("Request Body: None");
  }
 
  logger.log("Sending " + method + " request...");
- Response response = executeRequest(request, method, url);
+ }
 
+ private RestResponse completeResponse(RestResponse restResponse) {
+ LogManager logger = LogManager.getInstance();
  logger.log("======== RESPONSE DETAILS ========");
- logger.log("Status Code: " + response.getStatusCode());
- logger.log("Status Line: " + response.getStatusLine());
+ logger.log("Status Code: " + restResponse.getStatusCode());
+ logger.log("Status Line: " + restResponse.getStatusText());
 
- RestResponse restResponse = new RestResponse();
- restResponse.setStatusCode(response.getStatusCode());
- restResponse.setStatusText(response.getStatusLine());
-
- String responseBody = response.getBody().asString();
+ String responseBody = restResponse.getBody();
  restResponse.setBody(formatResponseBody(responseBody));
 
  logger.log("Response Headers:");
- Map<String, String> responseHeaders = new java.util.HashMap<>();
- response.getHeaders().forEach(header -> {
- responseHeaders.put(header.getName(), header.getValue());
- logger.log(" " + header.getName() + ": " + header.getValue());
- });
- restResponse.setHeaders(responseHeaders);
+ restResponse.getHeaders().forEach((k, v) -> logger.log(" " + k + ": " + v));
 
  if (responseBody != null && !responseBody.trim().isEmpty()) {
  logger.log("Response Body (" + responseBody.length() + " characters):");
@@ -110,13 +166,15 @@ public class RestClientService {
 
  logger.log("======== REQUEST COMPLETED ========");
  return restResponse;
+ }
 
- } catch (Exception e) {
+ private RestResponse errorResponse(Throwable e) {
+ LogManager logger = LogManager.getInstance();
  logger.log("======== REQUEST FAILED ========");
  logger.log("Error: " + e.getMessage());
  logger.log("Exception Type: " + e.getClass().getSimpleName());
  if (e.getCause() != null) {
-  logger.log("Cause: " + e.getCause().getMessage());
+ logger.log("Cause: " + e.getCause().getMessage());
  }
  RestResponse errorResponse = new RestResponse();
  errorResponse.setStatusCode(0);
@@ -124,31 +182,36 @@ public class RestClientService {
  errorResponse.setBody("Error: " + e.getMessage());
  return errorResponse;
  }
+
+ private static Throwable unwrap(Throwable error) {
+ while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+ error = error.getCause();
+ }
+ return error;
  }
 
- private String resolveVariables(String text) {
+ // Package-private so RequestScheduler can key its limits on the resolved host
+ String resolveVariables(String text) {
+ if (environmentSnapshot != null) {
+ return environmentSnapshot.resolveVariables(text);
+ }
  if (environmentManager != null && text != null) {
  return environmentManager.resolveVariables(text);
  }
  return text;
  }
 
- private Response executeRequest(RequestSpecification request, String method, String url) {
- switch (method.toUpperCase()) {
- case "GET": return request.get(url);
- case "POST": return request.post(url);
- case "PUT": return request.put(url);
- case "DELETE": return request.delete(url);
- case "PATCH": return request.patch(url);
- case "HEAD": return request.head(url);
-  case "OPTIONS": return request.options(url);
- default: throw new IllegalArgumentException("Unsupported HTTP method: " + method);
- }
- }
-
  private String formatResponseBody(String body) {
  if (body == null || body.trim().isEmpty()) return "";
  String formatted = JsonFormatter.formatJson(body);
  return formatted.equals(body) ? body : formatted;
  }
-}
\ No newline at end of file
+
+ private static class ResolvedRequest {
+ String method;
+ String url;
+ Map<String, String> headers;
+ Map<String, String> params;
+ String body;
+ }
+}
@@ -2,8 +2,13 @@ package com.rct.ui;
 
 import com.rct.manager.CollectionManager;
 import com.rct.manager.EnvironmentManager;
+import com.rct.manager.EnvironmentSnapshot;
 import com.rct.model.RestResponse;
+import com.rct.service.RequestScheduler;
 import com.rct.service.RestClientService;
+import com.rct.util.BulkRequestParser;
+import com.rct.util.DataFeeder;
+import com.rct.util.DynamicVariables;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
@@ -11,13 +16,23 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BulkExecutionDialog extends JDialog {
  private CollectionManager collectionManager;
@@ -33,12 +48,37 @@ public class BulkExecutionDialog extends JDialog {
  private JSpinner delaySpinner;
  private JSpinner threadsSpinner;
  private JCheckBox continueOnErrorCheck;
+ private JCheckBox virtualThreadsCheck;
  private JCheckBox exportResultsCheck;
+ private JComboBox<ResultOrder> resultOrderCombo;
+ private JSpinner hostMaxInFlightSpinner;
+ private JSpinner hostMaxRpsSpinner;
+ private JSpinner collectionMaxInFlightSpinner;
+ private JSpinner collectionMaxRpsSpinner;
+ private JTextField dataFileField;
+ private JComboBox<DataFeeder.Strategy> dataStrategyCombo;
+ private JSpinner iterationsSpinner;
  private ExecutorService executorService;
  private volatile boolean isPaused = false;
  private volatile boolean isStopped = false;
  private int completedRequests = 0;
  private int totalRequests = 0;
+ // Runs of unknown length (streamed files, data feeds) keep only the most recent results on screen
+ private static final int MAX_UNBOUNDED_RESULT_ROWS = 10000;
+
+ public enum ResultOrder {
+ COMPLETION("Completion order"),
+ INPUT("Input order");
+
+ private final String displayName;
+
+ ResultOrder(String displayName) {
+ this.displayName = displayName;
+ }
+
+ @Override
+ public String toString() { return displayName; }
+ }
 
  public static class RequestItem {
  private String collectionName;
@@ -89,7 +129,7 @@ public class BulkExecutionDialog extends JDialog {
  initializeComponents();
  setupLayout();
  loadRequests();
- setSize(900, 700);
+ setSize(900, 850);
  setLocationRelativeTo(parent);
  }
 
@@ -163,9 +203,28 @@ public class BulkExecutionDialog extends JDialog {
 
  // Configuration components
  delaySpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10000, 100));
- threadsSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 10, 1));
+ threadsSpinner = new JSpinner(new SpinnerNumberModel(4, 1, 50, 1));
  continueOnErrorCheck = new JCheckBox("Continue on error", true);
+ virtualThreadsCheck = new JCheckBox("Use virtual threads", false);
+ virtualThreadsCheck.setEnabled(com.rct.util.ThreadPools.isVirtualThreadSupported());
+ if (!virtualThreadsCheck.isEnabled()) {
+ virtualThreadsCheck.setToolTipText("Requires Java 21+");
+ }
  exportResultsCheck = new JCheckBox("Export results to CSV", false);
+ resultOrderCombo = new JComboBox<>(ResultOrder.values());
+
+ // Per-host and per-collection limits, 0 = unlimited
+ hostMaxInFlightSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 50, 1));
+ hostMaxRpsSpinner = new JSpinner(new SpinnerNumberModel(0.0, 0.0, 10000.0, 1.0));
+ collectionMaxInFlightSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 50, 1));
+ collectionMaxRpsSpinner = new JSpinner(new SpinnerNumberModel(0.0, 0.0, 10000.0, 1.0));
+
+ // Optional data file: the selection runs once per row, with the row's columns bound as {{column}}
+ dataFileField = new JTextField();
+ dataFileField.setToolTipText("Optional. CSV with a header row, or .jsonl");
+ dataStrategyCombo = new JComboBox<>(DataFeeder.Strategy.values());
+ iterationsSpinner = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1));
+ iterationsSpinner.setToolTipText("Times to run the selection; 0 = once, or once per row of a sequential data file");
 
  setupEventListeners();
  }
@@ -204,7 +263,7 @@ public class BulkExecutionDialog extends JDialog {
  topSplit.setResizeWeight(0.6);
 
  JSplitPane mainSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT, topSplit, bottomPanel);
- mainSplit.setDividerLocation(400);
+ mainSplit.setDividerLocation(540);
  mainSplit.setResizeWeight(0.5);
 
  mainPanel.add(mainSplit, BorderLayout.CENTER);
@@ -241,10 +300,15 @@ public class BulkExecutionDialog extends JDialog {
  importBtn.setBorderPainted(false);
  importBtn.addActionListener(e -> importFromFile());
 
+ JButton runFileBtn = new JButton("▶️Run File");
+ runFileBtn.setToolTipText("Execute every request in a JSON or CSV file as it is read, without listing them first");
+ runFileBtn.addActionListener(e -> executeFromFile());
+
  buttonPanel.add(selectAllBtn);
  buttonPanel.add(deselectAllBtn);
  buttonPanel.add(filterBtn);
  buttonPanel.add(importBtn);
+ buttonPanel.add(runFileBtn);
 
  panel.add(buttonPanel, BorderLayout.SOUTH);
 
@@ -258,11 +322,35 @@ public class BulkExecutionDialog extends JDialog {
  panel.add(new JLabel("Delay between requests (ms):"), "cell 0 0");
  panel.add(delaySpinner, "cell 1 0, growx");
 
- panel.add(new JLabel("Concurrent threads:"), "cell 2 0");
+ panel.add(new JLabel("Concurrent requests:"), "cell 2 0");
  panel.add(threadsSpinner, "cell 3 0");
 
  panel.add(continueOnErrorCheck, "cell 0 1, span 2");
  panel.add(exportResultsCheck, "cell 2 1, span 2");
+ panel.add(virtualThreadsCheck, "cell 0 2, span 2");
+ panel.add(new JLabel("Show results in:"), "cell 2 2");
+ panel.add(resultOrderCombo, "cell 3 2");
+
+ panel.add(new JLabel("Per-host max in-flight (0 = no limit):"), "cell 0 3");
+ panel.add(hostMaxInFlightSpinner, "cell 1 3, growx");
+ panel.add(new JLabel("Per-host max req/sec:"), "cell 2 3");
+ panel.add(hostMaxRpsSpinner, "cell 3 3");
+
+ panel.add(new JLabel("Per-collection max in-flight:"), "cell 0 4");
+ panel.add(collectionMaxInFlightSpinner, "cell 1 4, growx");
+ panel.add(new JLabel("Per-collection max req/sec:"), "cell 2 4");
+ panel.add(collectionMaxRpsSpinner, "cell 3 4");
+
+ JButton browseDataBtn = new JButton("Browse...");
+ browseDataBtn.addActionListener(e -> chooseDataFile());
+ panel.add(new JLabel("Data file (optional):"), "cell 0 5");
+ panel.add(dataFileField, "cell 1 5, growx");
+ panel.add(browseDataBtn, "cell 1 5");
+ panel.add(new JLabel("Row order:"), "cell 2 5");
+ panel.add(dataStrategyCombo, "cell 3 5");
+
+ panel.add(new JLabel("Iterations (0 = once / every row):"), "cell 0 6");
+ panel.add(iterationsSpinner, "cell 1 6, growx");
 
  return panel;
  }
@@ -370,11 +458,68 @@ public class BulkExecutionDialog extends JDialog {
  return;
  }
 
+ int iterations = (Integer) iterationsSpinner.getValue();
+ DataFeeder feeder = null;
+ String dataPath = dataFileField.getText().trim();
+ if (!dataPath.isEmpty()) {
+ DataFeeder.Strategy strategy = (DataFeeder.Strategy) dataStrategyCombo.getSelectedItem();
+ if (strategy != DataFeeder.Strategy.SEQUENTIAL && iterations == 0) {
+ JOptionPane.showMessageDialog(this, "Circular and random row orders never run out; set the number of iterations.",
+ "Iterations Required", JOptionPane.WARNING_MESSAGE);
+ return;
+ }
+ try {
+ File dataFile = new File(dataPath);
+ feeder = new DataFeeder(dataFile, DataFeeder.Format.forFile(dataFile), strategy);
+ } catch (IOException e) {
+ JOptionPane.showMessageDialog(this, "Cannot read data file: " + e.getMessage(),
+ "Data File Error", JOptionPane.ERROR_MESSAGE);
+ return;
+ }
+ }
+
+ // Unknown (-1) while a sequential data file decides how many rounds there are
+ prepareExecution(iterations > 0 ? (int) Math.min(Integer.MAX_VALUE, (long) selectedItems.size() * iterations) :
+ feeder != null ? -1 : selectedItems.size());
+
+ // Execute requests
+ executeRequestsAsync(selectedItems, feeder, iterations, null);
+ }
+
+ // Streams the file straight into execution: parse, execute and record one request at a time
+ private void executeFromFile() {
+ JFileChooser fileChooser = new JFileChooser();
+ fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+ "JSON and CSV files", "json", "csv"));
+ if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+ BulkRequestParser.RequestIterator source;
+ try {
+ source = BulkRequestParser.iterate(fileChooser.getSelectedFile());
+ } catch (Exception e) {
+ JOptionPane.showMessageDialog(this, "Error reading file: " + e.getMessage(),
+ "Run File Error", JOptionPane.ERROR_MESSAGE);
+ return;
+ }
+
+ Iterable<RequestItem> items = () -> new Iterator<RequestItem>() {
+ @Override
+ public boolean hasNext() { return source.hasNext(); }
+
+ @Override
+ public RequestItem next() { return createRequestItemFromBulkRequest(source.next()); }
+ };
+
+ prepareExecution(-1);
+ executeRequestsAsync(items, null, 1, source);
+ }
+
+ private void prepareExecution(int total) {
  // Clear previous results
  resultsModel.setRowCount(0);
 
  // Setup execution state
- totalRequests = selectedItems.size();
+ totalRequests = total;
  completedRequests = 0;
  isPaused = false;
  isStopped = false;
@@ -385,38 +530,193 @@ public class BulkExecutionDialog extends JDialog {
  stopBtn.setEnabled(true);
  progressBar.setValue(0);
  progressBar.setString("Starting execution...");
- statusLabel.setText("Executing " + totalRequests + " requests...");
+ statusLabel.setText(totalRequests > 0 ? "Executing " + totalRequests + " requests..." : "Executing requests...");
 
  // Create executor service
  int threadCount = (Integer) threadsSpinner.getValue();
- executorService = Executors.newFixedThreadPool(threadCount);
+ executorService = com.rct.util.ThreadPools.newExecutor(virtualThreadsCheck.isSelected(), threadCount);
+ }
 
- // Execute requests
- executeRequestsAsync(selectedItems);
+ private void chooseDataFile() {
+ JFileChooser fileChooser = new JFileChooser();
+ fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+ "CSV and JSON Lines files", "csv", "jsonl", "ndjson"));
+ if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+ dataFileField.setText(fileChooser.getSelectedFile().getAbsolutePath());
+ }
  }
 
- private void executeRequestsAsync(List<RequestItem> items) {
+ // Runs the items `iterations` times (0 = once, or once per row when a feeder is given). A one-shot
+ // source such as a streamed file must run a single round; it is closed when execution ends.
+ private void executeRequestsAsync(Iterable<RequestItem> items, DataFeeder feeder, int iterations, Closeable source) {
  int delay = (Integer) delaySpinner.getValue();
+ int parallelism = (Integer) threadsSpinner.getValue();
  boolean continueOnError = continueOnErrorCheck.isSelected();
+ boolean inputOrder = resultOrderCombo.getSelectedItem() == ResultOrder.INPUT;
+ ExecutorService executor = executorService;
+
+ RequestScheduler.Limits limits = new RequestScheduler.Limits();
+ limits.setMaxInFlightPerHost((Integer) hostMaxInFlightSpinner.getValue());
+ limits.setMaxRpsPerHost(((Number) hostMaxRpsSpinner.getValue()).doubleValue());
+ limits.setMaxInFlightPerCollection((Integer) collectionMaxInFlightSpinner.getValue());
+ limits.setMaxRpsPerCollection(((Number) collectionMaxRpsSpinner.getValue()).doubleValue());
+
+ long rounds = iterations > 0 ? iterations : feeder != null ? Long.MAX_VALUE : 1;
 
  SwingWorker<Void, ExecutionResult> worker = new SwingWorker<Void, ExecutionResult>() {
+ // Results that finished ahead of an earlier request, held back when showing input order
+ private final Map<Long, ExecutionResult> pendingResults = new HashMap<>();
+ private long nextToPublish = 0;
+ private volatile IOException sourceFailure;
+
  @Override
  protected Void doInBackground() throws Exception {
- RestClientService service = environmentManager != null ?
- new RestClientService(environmentManager) :
- new RestClientService();
+ // Captured once so the whole run uses the variables as they were when it started; requests are
+ // resolved here, per round, so the service itself sends them as given
+ EnvironmentSnapshot environment = environmentManager != null ?
+ environmentManager.getSnapshot() : EnvironmentSnapshot.EMPTY;
+ RequestScheduler scheduler = new RequestScheduler(new RestClientService(), limits);
 
- for (int i = 0; i < items.size() && !isStopped; i++) {
- // Handle pause
+ // Each permit is one request in flight; the executor only supplies the threads
+ Semaphore inFlight = new Semaphore(parallelism);
+ AtomicBoolean aborted = new AtomicBoolean(false);
+ long index = 0;
+
+ try {
+ dispatch:
+ for (long round = 0; round < rounds; round++) {
+ Map<String, String> row = feeder != null ? feeder.next() : null;
+ if (feeder != null && row == null) break;
+ DynamicVariables.Context context = new DynamicVariables.Context(0, (int) Math.min(round, Integer.MAX_VALUE));
+
+ for (RequestItem item : items) {
+ if (isStopped || aborted.get()) break dispatch;
+
+ // Handle pause: nothing new is dispatched, requests already in flight finish
  while (isPaused && !isStopped) {
  Thread.sleep(100);
  }
 
- if (isStopped) break;
+ if (isStopped || !acquire(inFlight, 1)) break dispatch;
+
+ // Add delay between request starts
+ if (delay > 0 && index > 0) {
+ Thread.sleep(delay);
+ }
+
+ final long resultIndex = index++;
+ final String name = rounds > 1 ? item.getRequestName() + " #" + (round + 1) : item.getRequestName();
+ try {
+ executor.execute(() -> {
+ ExecutionResult result = executeItem(scheduler, item, name, environment, context, row);
+ try {
+ if (result.transportError && !continueOnError) {
+ aborted.set(true);
+ }
+ deliver(resultIndex, result);
+ } finally {
+ inFlight.release();
+ }
+ });
+ } catch (RejectedExecutionException e) {
+ // Executor was shut down by Stop
+ inFlight.release();
+ break dispatch;
+ }
+ }
+ }
+
+ // Wait for the requests still in flight
+ acquire(inFlight, parallelism);
+ } catch (UncheckedIOException e) {
+ // The request file could not be read past this point; let what was started finish
+ sourceFailure = e.getCause();
+ acquire(inFlight, parallelism);
+ } finally {
+ scheduler.shutdown();
+ if (feeder != null) {
+ feeder.close();
+ }
+ if (source != null) {
+ source.close();
+ }
+ }
+ return null;
+ }
+
+ // Polls so that Stop is noticed while waiting for a free slot
+ private boolean acquire(Semaphore semaphore, int permits) throws InterruptedException {
+ while (!semaphore.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+ if (isStopped) return false;
+ }
+ return true;
+ }
+
+ private void deliver(long index, ExecutionResult result) {
+ if (!inputOrder) {
+ publish(result);
+ return;
+ }
+ synchronized (pendingResults) {
+ pendingResults.put(index, result);
+ ExecutionResult next;
+ while ((next = pendingResults.remove(nextToPublish)) != null) {
+ publish(next);
+ nextToPublish++;
+ }
+ }
+ }
+
+ @Override
+ protected void process(List<ExecutionResult> chunks) {
+ for (ExecutionResult result : chunks) {
+ resultsModel.addRow(new Object[]{
+ result.requestName,
+ result.status,
+ result.duration,
+ result.size,
+ result.result,
+ result.error
+ });
+
+  completedRequests++;
+ }
+ if (totalRequests < 0 && resultsModel.getRowCount() > MAX_UNBOUNDED_RESULT_ROWS) {
+ int excess = resultsModel.getRowCount() - MAX_UNBOUNDED_RESULT_ROWS;
+ java.util.Vector<?> rows = resultsModel.getDataVector();
+ rows.subList(0, excess).clear();
+ resultsModel.fireTableRowsDeleted(0, excess - 1);
+ }
+ if (totalRequests > 0) {
+ int progress = (int) ((completedRequests * 100.0) / totalRequests);
+ progressBar.setValue(progress);
+ progressBar.setString(completedRequests + " / " + totalRequests + " completed");
+ statusLabel.setText("Completed: " + completedRequests + " / " + totalRequests);
+ } else {
+ progressBar.setString(completedRequests + " completed");
+ statusLabel.setText("Completed: " + completedRequests +
+ (feeder != null ? " (" + feeder.getRowsDelivered() + " data rows)" : ""));
+ }
+ }
+
+ @Override
+ protected void done() {
+ executionCompleted();
+ if (feeder != null && feeder.getFailure() != null) {
+ statusLabel.setText("Stopped: data file failed - " + feeder.getFailure().getMessage());
+ } else if (sourceFailure != null) {
+ statusLabel.setText("Stopped: request file failed - " + sourceFailure.getMessage());
+ }
+ }
+ };
+
+ worker.execute();
+ }
 
- RequestItem item = items.get(i);
+ private ExecutionResult executeItem(RequestScheduler scheduler, RequestItem item, String name,
+ EnvironmentSnapshot environment, DynamicVariables.Context context, Map<String, String> row) {
  ExecutionResult result = new ExecutionResult();
- result.requestName = item.getRequestName();
+ result.requestName = name;
 
  try {
  long startTime = System.currentTimeMillis();
@@ -431,14 +731,15 @@ public class BulkExecutionDialog extends JDialog {
  // Add cookies to headers
  addCookieHeaders(headers, item);
 
- // Execute request
- RestResponse response = service.sendRequest(
+ // Execute request; the scheduler holds it back while its host or collection is at its limit
+ RestResponse response = awaitResponse(scheduler.submit(
+ item.getCollectionName(),
  item.getMethod(),
- item.getUrl(),
- headers,
- params,
- item.getSavedRequest().getBody()
- );
+ environment.resolveVariables(item.getUrl(), context, row),
+ resolveAll(headers, environment, context, row),
+ resolveAll(params, environment, context, row),
+ environment.resolveVariables(item.getSavedRequest().getBody(), context, row)
+ ));
 
  long duration = System.currentTimeMillis() - startTime;
 
@@ -449,6 +750,8 @@ public class BulkExecutionDialog extends JDialog {
  result.success = response.getStatusCode() >= 200 && response.getStatusCode() < 300;
  result.result = result.success ? "✅Success" : "❌Failed";
  result.error = result.success ? "" : "HTTP " + response.getStatusCode();
+ // RestClientService reports connection failures as status 0 rather than throwing
+ result.transportError = response.getStatusCode() == 0;
 
  } catch (Exception e) {
  result.status = "Error";
@@ -457,51 +760,35 @@ public class BulkExecutionDialog extends JDialog {
  result.success = false;
  result.result = "❌Error";
  result.error = e.getMessage();
-
- if (!continueOnError) {
- publish(result);
- break;
- }
+ result.transportError = true;
  }
 
- publish(result);
+ return result;
+ }
 
- // Add delay between requests
- if (delay > 0 && i < items.size() - 1) {
- Thread.sleep(delay);
+ private Map<String, String> resolveAll(Map<String, String> values, EnvironmentSnapshot environment,
+ DynamicVariables.Context context, Map<String, String> row) {
+ Map<String, String> resolved = new HashMap<>();
+ for (Map.Entry<String, String> entry : values.entrySet()) {
+ resolved.put(environment.resolveVariables(entry.getKey(), context, row),
+ environment.resolveVariables(entry.getValue(), context, row));
  }
+ return resolved;
  }
 
- return null;
-  }
-
- @Override
- protected void process(List<ExecutionResult> chunks) {
- for (ExecutionResult result : chunks) {
- resultsModel.addRow(new Object[]{
- result.requestName,
- result.status,
- result.duration,
- result.size,
- result.result,
- result.error
- });
-
-  completedRequests++;
- int progress = (int) ((completedRequests * 100.0) / totalRequests);
- progressBar.setValue(progress);
- progressBar.setString(completedRequests + " / " + totalRequests + " completed");
- statusLabel.setText("Completed: " + completedRequests + " / " + totalRequests);
+ private RestResponse awaitResponse(CompletableFuture<RestResponse> pending) throws Exception {
+ // Poll so that Stop aborts the in-flight request instead of waiting for it to finish
+ while (true) {
+ if (isStopped) {
+ pending.cancel(true);
+ throw new CancellationException("Execution stopped");
  }
+ try {
+ return pending.get(100, TimeUnit.MILLISECONDS);
+ } catch (TimeoutException e) {
+ // Still in flight
  }
-
- @Override
- protected void done() {
- executionCompleted();
  }
- };
-
- worker.execute();
  }
 
  private void togglePause() {
@@ -850,6 +1137,7 @@ public class BulkExecutionDialog extends JDialog {
  long duration;
  int size;
  boolean success;
+ boolean transportError;
  String result;
  String error;
  }
@@ -10,6 +10,7 @@ import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class EnvironmentDialog extends JDialog {
@@ -145,16 +146,17 @@ public class EnvironmentDialog extends JDialog {
  private void saveCurrentEnvironment() {
  String selectedEnv = (String) environmentCombo.getSelectedItem();
  if (selectedEnv != null) {
- EnvironmentManager.Environment env = environmentManager.getEnvironment(selectedEnv);
- if (env != null) {
- env.getVariables().clear();
+ if (environmentManager.getEnvironment(selectedEnv) != null) {
+ Map<String, String> variables = new LinkedHashMap<>();
  for (int i = 0; i < tableModel.getRowCount(); i++) {
  String key = (String) tableModel.getValueAt(i, 0);
  String value = (String) tableModel.getValueAt(i, 1);
  if (key != null && !key.trim().isEmpty()) {
- env.addVariable(key.trim(), value != null ? value.trim() : "");
+ variables.put(key.trim(), value != null ? value.trim() : "");
  }
  }
+ // Replaced as a whole so running requests keep seeing either the old or the new set
+ environmentManager.replaceVariables(selectedEnv, variables);
  updateStatus("Saved changes to " + selectedEnv);
  }
  }
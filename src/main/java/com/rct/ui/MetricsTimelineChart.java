@@ -0,0 +1,145 @@
+package com.rct.ui;
+
+import com.rct.util.PerformanceMetrics;
+import com.rct.util.UITheme;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+// Live per-second charts for a running load test: throughput, latency percentiles and errors
+public class MetricsTimelineChart extends JComponent {
+ private static final int LEFT_MARGIN = 60;
+ private static final int RIGHT_MARGIN = 15;
+ private static final int PLOT_GAP = 22;
+ private static final Color GRID_COLOR = new Color(222, 226, 230);
+
+ private List<PerformanceMetrics.WindowSample> samples = new ArrayList<>();
+
+ public MetricsTimelineChart() {
+ setPreferredSize(new Dimension(600, 300));
+ setOpaque(true);
+ setBackground(UITheme.BACKGROUND_WHITE);
+ // Registers with the tooltip manager; the text itself comes from getToolTipText()
+ setToolTipText("");
+ }
+
+ public void setSamples(List<PerformanceMetrics.WindowSample> samples) {
+ this.samples = samples != null ? samples : new ArrayList<>();
+ repaint();
+ }
+
+ public void clear() {
+ setSamples(null);
+ }
+
+ @Override
+ protected void paintComponent(Graphics g) {
+ super.paintComponent(g);
+
+ Graphics2D g2 = (Graphics2D) g.create();
+ g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+ g2.setColor(getBackground());
+ g2.fillRect(0, 0, getWidth(), getHeight());
+ g2.setFont(getFont().deriveFont(10f));
+
+ if (samples.isEmpty()) {
+ g2.setColor(UITheme.TEXT_SECONDARY);
+ g2.drawString("Per-second results appear here once the test is running", LEFT_MARGIN, getHeight() / 2);
+ g2.dispose();
+ return;
+ }
+
+ int plotHeight = (getHeight() - PLOT_GAP * 3) / 3;
+ int width = getWidth() - LEFT_MARGIN - RIGHT_MARGIN;
+
+ drawPlot(g2, PLOT_GAP, width, plotHeight, "Throughput (req/s) / In-flight",
+ new String[]{"req/s", "in-flight"},
+ new Color[]{UITheme.PRIMARY_BLUE, UITheme.TEXT_SECONDARY},
+ PerformanceMetrics.WindowSample::getRequestsPerSecond,
+ PerformanceMetrics.WindowSample::getInFlight);
+
+ drawPlot(g2, PLOT_GAP * 2 + plotHeight, width, plotHeight, "Latency (ms)",
+ new String[]{"p50", "p95", "p99"},
+ new Color[]{UITheme.PRIMARY_GREEN, UITheme.PRIMARY_ORANGE, UITheme.PRIMARY_PURPLE},
+ PerformanceMetrics.WindowSample::getP50Millis,
+ PerformanceMetrics.WindowSample::getP95Millis,
+ PerformanceMetrics.WindowSample::getP99Millis);
+
+ drawPlot(g2, PLOT_GAP * 3 + plotHeight * 2, width, plotHeight, "Errors (%)",
+ new String[]{"error rate"},
+ new Color[]{UITheme.PRIMARY_RED},
+ PerformanceMetrics.WindowSample::getErrorRate);
+
+ g2.dispose();
+ }
+
+ @SafeVarargs
+ private final void drawPlot(Graphics2D g2, int top, int width, int height, String title, String[] labels,
+ Color[] colors, ToDoubleFunction<PerformanceMetrics.WindowSample>... series) {
+ double max = 0;
+ for (ToDoubleFunction<PerformanceMetrics.WindowSample> values : series) {
+ for (PerformanceMetrics.WindowSample sample : samples) {
+ max = Math.max(max, values.applyAsDouble(sample));
+ }
+ }
+ max = max > 0 ? max * 1.1 : 1;
+
+ // Frame, title and scale
+ g2.setColor(GRID_COLOR);
+ g2.drawRect(LEFT_MARGIN, top, width, height);
+ g2.drawLine(LEFT_MARGIN, top + height / 2, LEFT_MARGIN + width, top + height / 2);
+ g2.setColor(UITheme.TEXT_PRIMARY);
+ g2.drawString(title, LEFT_MARGIN, top - 4);
+ g2.setColor(UITheme.TEXT_SECONDARY);
+ g2.drawString(formatValue(max), 4, top + 10);
+ g2.drawString(formatValue(max / 2), 4, top + height / 2 + 4);
+ g2.drawString("0", 4, top + height);
+
+ // Legend
+ int legendX = LEFT_MARGIN + width;
+ for (int s = labels.length - 1; s >= 0; s--) {
+ legendX -= g2.getFontMetrics().stringWidth(labels[s]) + 18;
+ g2.setColor(colors[s]);
+ g2.fillRect(legendX, top - 11, 10, 8);
+ g2.drawString(labels[s], legendX + 13, top - 4);
+ }
+
+ // One point per sampled second, spread across the full width
+ int count = samples.size();
+ double step = count > 1 ? (double) width / (count - 1) : 0;
+ for (int s = 0; s < series.length; s++) {
+ g2.setColor(colors[s]);
+ int prevX = -1;
+ int prevY = -1;
+ for (int i = 0; i < count; i++) {
+ int x = LEFT_MARGIN + (int) Math.round(i * step);
+ int y = top + height - (int) Math.round(series[s].applyAsDouble(samples.get(i)) / max * height);
+ if (prevX >= 0) {
+ g2.drawLine(prevX, prevY, x, y);
+ } else if (count == 1) {
+ g2.fillOval(x - 2, y - 2, 4, 4);
+ }
+ prevX = x;
+ prevY = y;
+ }
+ }
+ }
+
+ private static String formatValue(double value) {
+ if (value >= 1000) return String.format("%.0f", value);
+ if (value >= 10) return String.format("%.1f", value);
+ return String.format("%.2f", value);
+ }
+
+ @Override
+ public String getToolTipText() {
+ if (samples.isEmpty()) return null;
+ PerformanceMetrics.WindowSample last = samples.get(samples.size() - 1);
+ return String.format("t=%ds  %.1f req/s  p50 %.1f ms  p95 %.1f ms  p99 %.1f ms  errors %.1f%%  in-flight %d",
+ last.getElapsedMillis() / 1000, last.getRequestsPerSecond(), last.getP50Millis(), last.getP95Millis(),
+ last.getP99Millis(), last.getErrorRate(), last.getInFlight());
+ }
+}
@@ -1,11 +1,14 @@
 package com.rct.ui;
 
 import com.rct.manager.CollectionManager;
+import com.rct.manager.EnvironmentManager;
 import com.rct.model.RestResponse;
+import com.rct.service.RequestScheduler;
 import com.rct.service.RestClientService;
 import com.rct.util.UITheme;
 import com.rct.util.LoadTestRunner;
 import com.rct.util.PerformanceMetrics;
+import com.rct.util.DataFeeder;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
@@ -15,10 +18,6 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.*;
-import java.util.List;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 public class PerformanceTestDialog extends JDialog {
  private JTextField urlField;
@@ -27,6 +26,18 @@ public class PerformanceTestDialog extends JDialog {
  private JSpinner requestsPerUserSpinner;
  private JSpinner rampUpTimeSpinner;
  private JSpinner testDurationSpinner;
+ private JComboBox<LoadTestRunner.ExecutionMode> executionModeCombo;
+ private JComboBox<LoadTestRunner.LoadModel> loadModelCombo;
+ private JSpinner targetRpsSpinner;
+ private JSpinner startRpsSpinner;
+ private JComboBox<LoadTestRunner.RateProfile> rateProfileCombo;
+ private JSpinner stepCountSpinner;
+ private JComboBox<LoadTestRunner.ArrivalDistribution> arrivalDistributionCombo;
+ private JSpinner maxInFlightSpinner;
+ private JSpinner hostMaxInFlightSpinner;
+ private JSpinner hostMaxRpsSpinner;
+ private JTextField dataFileField;
+ private JComboBox<DataFeeder.Strategy> dataStrategyCombo;
  private JTextArea headersArea;
  private JTextArea bodyArea;
  private JButton startTestBtn;
@@ -35,26 +46,31 @@ public class PerformanceTestDialog extends JDialog {
  private JLabel statusLabel;
  private DefaultTableModel resultsModel;
  private JTable resultsTable;
+ private MetricsTimelineChart timelineChart;
 
  // Test execution
- private ExecutorService executorService;
+ private SwingWorker<LoadTestRunner.LoadTestResult, Void> testWorker;
  private volatile boolean testRunning = false;
- private AtomicInteger completedRequests = new AtomicInteger(0);
- private AtomicInteger successfulRequests = new AtomicInteger(0);
- private AtomicInteger failedRequests = new AtomicInteger(0);
- private AtomicLong totalResponseTime = new AtomicLong(0);
  private long testStartTime;
  private javax.swing.Timer updateTimer;
 
- // Results tracking
- private List<Long> responseTimes = Collections.synchronizedList(new ArrayList<>());
- private Map<Integer, AtomicInteger> statusCounts = new ConcurrentHashMap<>();
+ // Results tracking: the runner records into these metrics and the timer samples them once a second
+ private volatile PerformanceMetrics liveMetrics;
+ private volatile int completedUsers;
+ private volatile int totalUsers;
+
+ private final EnvironmentManager environmentManager;
 
  public PerformanceTestDialog(Frame parent) {
+ this(parent, null);
+ }
+
+ public PerformanceTestDialog(Frame parent, EnvironmentManager environmentManager) {
  super(parent, "Performance Testing - Load Test", true);
+ this.environmentManager = environmentManager;
  initializeComponents();
  setupLayout();
- setSize(800, 700);
+ setSize(850, 820);
  setLocationRelativeTo(parent);
  }
 
@@ -64,10 +80,35 @@ public class PerformanceTestDialog extends JDialog {
  methodCombo = new JComboBox<>(new String[]{"GET", "POST", "PUT", "DELETE", "PATCH"});
 
  // Load test parameters
- concurrentUsersSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 1000, 1));
+ concurrentUsersSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 50000, 1));
  requestsPerUserSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 1000, 1));
  rampUpTimeSpinner = new JSpinner(new SpinnerNumberModel(10, 0, 300, 1));
  testDurationSpinner = new JSpinner(new SpinnerNumberModel(60, 10, 3600, 10));
+ executionModeCombo = new JComboBox<>(LoadTestRunner.ExecutionMode.values());
+
+ // Open-model (arrival rate) parameters
+ loadModelCombo = new JComboBox<>(LoadTestRunner.LoadModel.values());
+ targetRpsSpinner = new JSpinner(new SpinnerNumberModel(50, 1, 100000, 10));
+ startRpsSpinner = new JSpinner(new SpinnerNumberModel(5, 0, 100000, 5));
+ rateProfileCombo = new JComboBox<>(LoadTestRunner.RateProfile.values());
+ stepCountSpinner = new JSpinner(new SpinnerNumberModel(5, 1, 100, 1));
+ arrivalDistributionCombo = new JComboBox<>(LoadTestRunner.ArrivalDistribution.values());
+ maxInFlightSpinner = new JSpinner(new SpinnerNumberModel(1000, 1, 100000, 100));
+
+ // Per-host limits, 0 = unlimited
+ hostMaxInFlightSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 100000, 10));
+ hostMaxRpsSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 100000, 10));
+ hostMaxInFlightSpinner.setToolTipText("0 = unlimited");
+ hostMaxRpsSpinner.setToolTipText("0 = unlimited");
+
+ // Optional CSV / JSON Lines file; each request binds the next row's columns as {{column}}
+ dataFileField = new JTextField();
+ dataFileField.setToolTipText("Optional. CSV with a header row, or .jsonl; leave empty to send the same request every time");
+ dataStrategyCombo = new JComboBox<>(DataFeeder.Strategy.values());
+ if (!com.rct.util.ThreadPools.isVirtualThreadSupported()) {
+ executionModeCombo.setToolTipText("Virtual threads need Java 21+; that mode falls back to platform threads on Java "
+ + System.getProperty("java.version"));
+ }
 
  // Request details
  headersArea = new JTextArea(3, 30);
@@ -101,6 +142,7 @@ public class PerformanceTestDialog extends JDialog {
   };
  resultsTable = new JTable(resultsModel);
  resultsTable.setRowHeight(25);
+ timelineChart = new MetricsTimelineChart();
 
  setupEventListeners();
  }
@@ -108,6 +150,9 @@ public class PerformanceTestDialog extends JDialog {
  private void setupEventListeners() {
  startTestBtn.addActionListener(e -> startLoadTest());
  stopTestBtn.addActionListener(e -> stopLoadTest());
+ loadModelCombo.addActionListener(e -> updateLoadModelFields());
+ rateProfileCombo.addActionListener(e -> updateLoadModelFields());
+ updateLoadModelFields();
  }
 
  private void setupLayout() {
@@ -126,7 +171,7 @@ public class PerformanceTestDialog extends JDialog {
  JPanel controlPanel = createControlPanel();
 
  JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, configPanel, resultsPanel);
- splitPane.setDividerLocation(350);
+ splitPane.setDividerLocation(470);
  splitPane.setResizeWeight(0.5);
 
  mainPanel.add(splitPane, BorderLayout.CENTER);
@@ -146,6 +191,9 @@ public class PerformanceTestDialog extends JDialog {
  panel.add(methodCombo, "growx, wrap");
 
  // Load test parameters
+ panel.add(new JLabel("Load Model:"), "");
+ panel.add(loadModelCombo, "growx, wrap");
+
  panel.add(new JLabel("Concurrent Users:"), "");
  panel.add(concurrentUsersSpinner, "growx, wrap");
 
@@ -158,6 +206,38 @@ public class PerformanceTestDialog extends JDialog {
  panel.add(new JLabel("Test Duration (sec):"), "");
  panel.add(testDurationSpinner, "growx, wrap");
 
+ panel.add(new JLabel("Execution Mode:"), "");
+ panel.add(executionModeCombo, "growx, wrap");
+
+ // Arrival rate parameters (open model)
+ panel.add(new JLabel("Target RPS:"), "");
+ panel.add(targetRpsSpinner, "growx, wrap");
+
+ panel.add(new JLabel("Rate Profile:"), "");
+ panel.add(rateProfileCombo, "split 5, growx");
+ panel.add(new JLabel("Start RPS:"), "");
+ panel.add(startRpsSpinner, "growx");
+ panel.add(new JLabel("Steps:"), "");
+ panel.add(stepCountSpinner, "growx, wrap");
+
+ panel.add(new JLabel("Inter-arrival:"), "");
+ panel.add(arrivalDistributionCombo, "split 3, growx");
+ panel.add(new JLabel("Max In-flight:"), "");
+ panel.add(maxInFlightSpinner, "growx, wrap");
+
+ panel.add(new JLabel("Per-host Limits:"), "");
+ panel.add(new JLabel("Max In-flight:"), "split 4");
+ panel.add(hostMaxInFlightSpinner, "growx");
+ panel.add(new JLabel("Max RPS:"), "");
+ panel.add(hostMaxRpsSpinner, "growx, wrap");
+
+ panel.add(new JLabel("Data File:"), "");
+ panel.add(dataFileField, "split 3, growx");
+ JButton browseDataBtn = new JButton("Browse...");
+ browseDataBtn.addActionListener(e -> chooseDataFile());
+ panel.add(browseDataBtn, "");
+ panel.add(dataStrategyCombo, "wrap");
+
  // Headers
  panel.add(new JLabel("Headers:"), "top");
  panel.add(new JScrollPane(headersArea), "growx, wrap");
@@ -169,12 +249,23 @@ public class PerformanceTestDialog extends JDialog {
  return panel;
  }
 
+ private void chooseDataFile() {
+ JFileChooser fileChooser = new JFileChooser();
+ fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+ "CSV and JSON Lines files", "csv", "jsonl", "ndjson"));
+ if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+ dataFileField.setText(fileChooser.getSelectedFile().getAbsolutePath());
+ }
+ }
+
  private JPanel createResultsPanel() {
  JPanel panel = new JPanel(new BorderLayout());
  panel.setBorder(BorderFactory.createTitledBorder("Test Results"));
 
- JScrollPane scrollPane = new JScrollPane(resultsTable);
- panel.add(scrollPane, BorderLayout.CENTER);
+ JTabbedPane tabs = new JTabbedPane();
+ tabs.addTab("Summary", new JScrollPane(resultsTable));
+ tabs.addTab("Timeline", timelineChart);
+ panel.add(tabs, BorderLayout.CENTER);
 
  return panel;
  }
@@ -199,33 +290,22 @@ public class PerformanceTestDialog extends JDialog {
  if (testRunning) return;
 
  // Reset counters
- completedRequests.set(0);
- successfulRequests.set(0);
- failedRequests.set(0);
- totalResponseTime.set(0);
- responseTimes.clear();
- statusCounts.clear();
  resultsModel.setRowCount(0);
+ timelineChart.clear();
+ liveMetrics = new PerformanceMetrics();
+ completedUsers = 0;
+ totalUsers = 0;
 
  testRunning = true;
  testStartTime = System.currentTimeMillis();
  startTestBtn.setEnabled(false);
  stopTestBtn.setEnabled(true);
 
-  int concurrentUsers = (Integer) concurrentUsersSpinner.getValue();
+ int concurrentUsers = (Integer) concurrentUsersSpinner.getValue();
  int requestsPerUser = (Integer) requestsPerUserSpinner.getValue();
  int rampUpTime = (Integer) rampUpTimeSpinner.getValue();
  int testDuration = (Integer) testDurationSpinner.getValue();
 
- int totalRequests = concurrentUsers * requestsPerUser;
- progressBar.setMaximum(totalRequests);
-
- statusLabel.setText("Starting load test...");
-
- // Start update timer
- updateTimer = new javax.swing.Timer(1000, e -> updateResults());
- updateTimer.start();
-
  // Create load test configuration
  LoadTestRunner.LoadTestConfig config = new LoadTestRunner.LoadTestConfig(
  urlField.getText(),
@@ -237,58 +317,95 @@ public class PerformanceTestDialog extends JDialog {
  rampUpTime,
  testDuration
  );
+ config.setExecutionMode((LoadTestRunner.ExecutionMode) executionModeCombo.getSelectedItem());
+ config.setLoadModel((LoadTestRunner.LoadModel) loadModelCombo.getSelectedItem());
+ config.setTargetRps(((Number) targetRpsSpinner.getValue()).doubleValue());
+ config.setStartRps(((Number) startRpsSpinner.getValue()).doubleValue());
+ config.setRateProfile((LoadTestRunner.RateProfile) rateProfileCombo.getSelectedItem());
+ config.setStepCount((Integer) stepCountSpinner.getValue());
+ config.setArrivalDistribution((LoadTestRunner.ArrivalDistribution) arrivalDistributionCombo.getSelectedItem());
+ config.setMaxInFlight((Integer) maxInFlightSpinner.getValue());
+
+ RequestScheduler.Limits limits = new RequestScheduler.Limits();
+ limits.setMaxInFlightPerHost((Integer) hostMaxInFlightSpinner.getValue());
+ limits.setMaxRpsPerHost(((Number) hostMaxRpsSpinner.getValue()).doubleValue());
+ config.setRequestLimits(limits);
+ if (environmentManager != null) {
+ // The test resolves {{variables}} against the environment as it is right now
+ config.setEnvironment(environmentManager.getSnapshot());
+ }
+ String dataPath = dataFileField.getText().trim();
+ if (!dataPath.isEmpty()) {
+ java.io.File dataFile = new java.io.File(dataPath);
+ config.setDataFeed(dataFile, DataFeeder.Format.forFile(dataFile),
+ (DataFeeder.Strategy) dataStrategyCombo.getSelectedItem());
+ }
+
+ progressBar.setMaximum(Math.max(1, config.getExpectedRequestCount()));
+
+ statusLabel.setText("Starting load test...");
+
+ // Start update timer
+ updateTimer = new javax.swing.Timer(1000, e -> updateResults());
+ updateTimer.start();
  
- // Run load test in background
- SwingWorker<LoadTestRunner.LoadTestResult, Void> worker = new SwingWorker<LoadTestRunner.LoadTestResult, Void>() {
+ // Run load test in background. Progress is not pushed per request; the timer reads liveMetrics
+ PerformanceMetrics metrics = liveMetrics;
+ testWorker = new SwingWorker<LoadTestRunner.LoadTestResult, Void>() {
  @Override
  protected LoadTestRunner.LoadTestResult doInBackground() throws Exception {
  return LoadTestRunner.runLoadTest(config, new LoadTestRunner.LoadTestProgressCallback() {
  @Override
- public void onUserCompleted(int userIndex, int completedUsers, int totalUsers) {
- SwingUtilities.invokeLater(() -> {
- statusLabel.setText(String.format("Users completed: %d/%d", completedUsers, totalUsers));
- });
- }
-
-  @Override
- public void onRequestCompleted(int userIndex, int completedRequests, int totalRequests,
- long responseTime, int statusCode, boolean success) {
- SwingUtilities.invokeLater(() -> {
- PerformanceTestDialog.this.completedRequests.incrementAndGet();
- PerformanceTestDialog.this.totalResponseTime.addAndGet(responseTime);
- PerformanceTestDialog.this.responseTimes.add(responseTime);
-
- if (success) {
- PerformanceTestDialog.this.successfulRequests.incrementAndGet();
- } else {
-  PerformanceTestDialog.this.failedRequests.incrementAndGet();
- }
-
- statusCounts.computeIfAbsent(statusCode, k -> new AtomicInteger(0))
- .incrementAndGet();
- });
+ public void onUserCompleted(int userIndex, int completed, int total) {
+ completedUsers = completed;
+ totalUsers = total;
  }
 
  @Override
  public void onTestCompleted(PerformanceMetrics metrics) {
-  SwingUtilities.invokeLater(() -> {
+ SwingUtilities.invokeLater(() -> {
  statusLabel.setText("Load test completed - " + metrics.generateReport().split("\n")[0]);
  });
  }
- });
+ }, metrics);
  }
 
  @Override
  protected void done() {
  stopLoadTest();
+ if (!isCancelled()) {
+ try {
+ // e.g. the data file could not be read
+ String error = get().getErrorMessage();
+ if (error != null) {
+ statusLabel.setText("Load test ended: " + error);
+ }
+ } catch (Exception e) {
+ statusLabel.setText("Load test failed: " + e.getMessage());
+ }
+ }
  }
  };
 
- worker.execute();
+ testWorker.execute();
  }
 
 
 
+ private void updateLoadModelFields() {
+ boolean open = loadModelCombo.getSelectedItem() == LoadTestRunner.LoadModel.OPEN;
+ boolean profiled = rateProfileCombo.getSelectedItem() != LoadTestRunner.RateProfile.CONSTANT;
+
+ concurrentUsersSpinner.setEnabled(!open);
+ requestsPerUserSpinner.setEnabled(!open);
+ targetRpsSpinner.setEnabled(open);
+ rateProfileCombo.setEnabled(open);
+ startRpsSpinner.setEnabled(open && profiled);
+ stepCountSpinner.setEnabled(open && rateProfileCombo.getSelectedItem() == LoadTestRunner.RateProfile.STEP);
+ arrivalDistributionCombo.setEnabled(open);
+ maxInFlightSpinner.setEnabled(open);
+ }
+
  private Map<String, String> parseHeaders(String headersText) {
  Map<String, String> headers = new HashMap<>();
  if (headersText != null && !headersText.trim().isEmpty()) {
@@ -304,11 +421,12 @@ public class PerformanceTestDialog extends JDialog {
  }
 
  private void updateResults() {
- if (!testRunning && completedRequests.get() == 0) return;
+ PerformanceMetrics metrics = liveMetrics;
+ if (metrics == null || (!testRunning && metrics.getTotalRequests() == 0)) return;
 
- int completed = completedRequests.get();
- int successful = successfulRequests.get();
- int failed = failedRequests.get();
+ int completed = metrics.getTotalRequests();
+ int successful = metrics.getSuccessfulRequests();
+ int failed = metrics.getFailedRequests();
 
  // Update progress
  progressBar.setValue(completed);
@@ -316,16 +434,20 @@ public class PerformanceTestDialog extends JDialog {
 
  // Update status
  long elapsedTime = (System.currentTimeMillis() - testStartTime) / 1000;
- double requestsPerSecond = completed > 0 ? (double) completed / elapsedTime : 0;
- statusLabel.setText(String.format("Elapsed: %ds | RPS: %.2f | Success: %d | Failed: %d",
- elapsedTime, requestsPerSecond, successful, failed));
+ double requestsPerSecond = completed > 0 && elapsedTime > 0 ? (double) completed / elapsedTime : 0;
+ String users = totalUsers > 0 ? String.format(" | Users done: %d/%d", completedUsers, totalUsers) : "";
+ statusLabel.setText(String.format("Elapsed: %ds | RPS: %.2f | Success: %d | Failed: %d%s",
+ elapsedTime, requestsPerSecond, successful, failed, users));
 
  // Update results table
- updateResultsTable(completed, successful, failed, elapsedTime, requestsPerSecond);
+ updateResultsTable(metrics, completed, successful, failed, elapsedTime, requestsPerSecond);
+ timelineChart.setSamples(metrics.getTimeSeries());
  }
 
- private void updateResultsTable(int completed, int successful, int failed, long elapsedTime, double rps) {
+ private void updateResultsTable(PerformanceMetrics metrics, int completed, int successful, int failed,
+ long elapsedTime, double rps) {
  resultsModel.setRowCount(0);
+ if (completed == 0) return;
 
  // Basic metrics
  resultsModel.addRow(new Object[]{"Total Requests", completed, "count"});
@@ -335,34 +457,34 @@ public class PerformanceTestDialog extends JDialog {
  resultsModel.addRow(new Object[]{"Requests per Second", String.format("%.2f", rps), "req/sec"});
  resultsModel.addRow(new Object[]{"Test Duration", elapsedTime, "seconds"});
 
- // Response time statistics
- if (!responseTimes.isEmpty()) {
- List<Long> sortedTimes = new ArrayList<>(responseTimes);
- Collections.sort(sortedTimes);
-
- long avgTime = totalResponseTime.get() / completed;
- long minTime = sortedTimes.get(0);
- long maxTime = sortedTimes.get(sortedTimes.size() - 1);
- long p50 = sortedTimes.get((int)(sortedTimes.size() * 0.5));
- long p95 = sortedTimes.get((int)(sortedTimes.size() * 0.95));
- long p99 = sortedTimes.get((int)(sortedTimes.size() * 0.99));
-
+ // Most recent one-second window
+ PerformanceMetrics.WindowSample window = metrics.getLatestWindow();
+ if (window != null) {
  resultsModel.addRow(new Object[]{"", "", ""});
- resultsModel.addRow(new Object[]{"Avg Response Time", avgTime, "ms"});
- resultsModel.addRow(new Object[]{"Min Response Time", minTime, "ms"});
- resultsModel.addRow(new Object[]{"Max Response Time", maxTime, "ms"});
- resultsModel.addRow(new Object[]{"50th Percentile", p50, "ms"});
- resultsModel.addRow(new Object[]{"95th Percentile", p95, "ms"});
- resultsModel.addRow(new Object[]{"99th Percentile", p99, "ms"});
+ resultsModel.addRow(new Object[]{"Current Throughput", String.format("%.2f", window.getRequestsPerSecond()), "req/sec"});
+ resultsModel.addRow(new Object[]{"Current 95th Percentile", String.format("%.1f", window.getP95Millis()), "ms"});
+ resultsModel.addRow(new Object[]{"Current Error Rate", String.format("%.2f%%", window.getErrorRate()), "%"});
+ resultsModel.addRow(new Object[]{"In-flight Requests", window.getInFlight(), "count"});
  }
 
+ // Response time statistics
+ resultsModel.addRow(new Object[]{"", "", ""});
+ resultsModel.addRow(new Object[]{"Avg Response Time", metrics.getAverageResponseTime(), "ms"});
+ resultsModel.addRow(new Object[]{"Min Response Time", metrics.getMinResponseTime(), "ms"});
+ resultsModel.addRow(new Object[]{"Max Response Time", metrics.getMaxResponseTime(), "ms"});
+ resultsModel.addRow(new Object[]{"50th Percentile", metrics.getPercentile(50), "ms"});
+ resultsModel.addRow(new Object[]{"95th Percentile", metrics.getPercentile(95), "ms"});
+ resultsModel.addRow(new Object[]{"99th Percentile", metrics.getPercentile(99), "ms"});
+ resultsModel.addRow(new Object[]{"99th Percentile (from intended send)", metrics.getCorrectedPercentile(99), "ms"});
+
  // Status code distribution
+ Map<Integer, Integer> statusCounts = metrics.getStatusCodeDistribution();
  if (!statusCounts.isEmpty()) {
  resultsModel.addRow(new Object[]{"", "", ""});
- for (Map.Entry<Integer, AtomicInteger> entry : statusCounts.entrySet()) {
+ for (Map.Entry<Integer, Integer> entry : statusCounts.entrySet()) {
  resultsModel.addRow(new Object[]{
  "Status " + entry.getKey(),
- entry.getValue().get(),
+ entry.getValue(),
  "count"
  });
  }
@@ -376,15 +498,9 @@ public class PerformanceTestDialog extends JDialog {
  startTestBtn.setEnabled(true);
  stopTestBtn.setEnabled(false);
 
- if (executorService != null) {
- executorService.shutdown();
- try {
- if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
- executorService.shutdownNow();
- }
- } catch (InterruptedException e) {
- executorService.shutdownNow();
- }
+ // Interrupting the worker thread makes the runner stop issuing requests and shut down its pools
+ if (testWorker != null && !testWorker.isDone()) {
+ testWorker.cancel(true);
  }
 
  if (updateTimer != null) {
@@ -398,7 +514,7 @@ public class PerformanceTestDialog extends JDialog {
  }
 
  private void exportResults() {
- if (completedRequests.get() == 0) {
+ if (liveMetrics == null || liveMetrics.getTotalRequests() == 0) {
  JOptionPane.showMessageDialog(this, "No test results to export", "No Data", JOptionPane.WARNING_MESSAGE);
  return;
  }
@@ -427,10 +543,21 @@ public class PerformanceTestDialog extends JDialog {
  );
  }
 
- // Write raw response times
- writer.println("\nResponse Times (ms)");
- for (Long time : responseTimes) {
- writer.println(time);
+ // Write the response time distribution
+ writer.println("\nPercentile,Response Time (ms),From Intended Send (ms)");
+ for (double percentile : new double[]{10, 25, 50, 75, 90, 95, 99, 99.9, 100}) {
+ writer.printf(Locale.ROOT, "%.1f,%d,%d%n", percentile,
+ liveMetrics.getPercentile(percentile), liveMetrics.getCorrectedPercentile(percentile));
+ }
+
+ // Write the per-second time series
+ if (liveMetrics != null) {
+ writer.println("\nElapsed (s),Requests/sec,p50 (ms),p95 (ms),p99 (ms),Error Rate (%),In-flight");
+ for (PerformanceMetrics.WindowSample sample : liveMetrics.getTimeSeries()) {
+ writer.printf(Locale.ROOT, "%.1f,%.2f,%.2f,%.2f,%.2f,%.2f,%d%n",
+ sample.getElapsedMillis() / 1000.0, sample.getRequestsPerSecond(), sample.getP50Millis(),
+ sample.getP95Millis(), sample.getP99Millis(), sample.getErrorRate(), sample.getInFlight());
+ }
  }
  }
 
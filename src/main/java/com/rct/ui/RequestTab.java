@@ -772,21 +772,17 @@ public class RequestTab {
  timeLabel.setText("Time: -");
  statusIndicator.setStatus(TabStatusIndicator.Status.SENDING);
 
- SwingWorker<RestResponse, Void> worker = new SwingWorker<RestResponse, Void>() {
- private boolean historyAdded = false;
-
- @Override
- protected RestResponse doInBackground() throws Exception {
  long startTime = System.currentTimeMillis();
- RestResponse response = restService.sendRequest(method, url, headers, params, body);
-  response.setResponseTime(System.currentTimeMillis() - startTime);
- return response;
+ restService.sendRequestAsync(method, url, headers, params, body).whenComplete((response, error) -> {
+ if (response != null) {
+ response.setResponseTime(System.currentTimeMillis() - startTime);
  }
 
- @Override
- protected void done() {
+ SwingUtilities.invokeLater(() -> {
  try {
- RestResponse response = get();
+ if (error != null) {
+ throw error instanceof Exception ? (Exception) error : new Exception(error);
+ }
  updateResponse(response);
 
  // Update status indicator based on response
@@ -796,10 +792,8 @@ public class RequestTab {
  statusIndicator.setStatus(TabStatusIndicator.Status.ERROR);
  }
 
- // Add to history only once
- if (historyManager != null && !historyAdded) {
- historyManager.addHistoryEntry(method, url, response.getStatusCode(), response.getResponseTime(), headers, body);
- historyAdded = true;
+ if (historyManager != null) {
+ historyManager.addHistoryEntry(method, url, response.getStatusCode(), response.getResponseTime(), headers, body, response.getBody());
  }
  logger.log("=== REQUEST CYCLE COMPLETED ===");
  } catch (Exception e) {
@@ -808,10 +802,8 @@ public class RequestTab {
  responseArea.setText("Error: " + e.getMessage());
  statusIndicator.setStatus(TabStatusIndicator.Status.ERROR);
  }
- }
- };
-
- worker.execute();
+ });
+ });
 
  } catch (Exception e) {
  logger.log("FATAL ERROR: " + e.getMessage());
@@ -1149,43 +1141,14 @@ public class RequestTab {
  CollectionManager.SavedRequest savedRequest = new CollectionManager.SavedRequest(
  requestName, method, url, headersStr.toString(), body, paramsStr.toString());
 
- CollectionManager.Collection targetCollection = null;
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(selectedCollection)) {
- targetCollection = collection;
- break;
- }
- }
-
+ CollectionManager.Collection targetCollection = collectionManager.findCollection(selectedCollection);
  if (targetCollection == null) {
  targetCollection = new CollectionManager.Collection(selectedCollection);
  collectionManager.addCollection(targetCollection);
  }
 
- // Check if request with same name already exists and replace it
- boolean replaced = false;
- for (int i = 0; i < targetCollection.getRequests().size(); i++) {
- CollectionManager.SavedRequest existingRequest = targetCollection.getRequests().get(i);
- if (existingRequest.getName().equals(requestName)) {
- targetCollection.getRequests().set(i, savedRequest);
- replaced = true;
- break;
- }
- }
-
- if (!replaced) {
- targetCollection.addRequest(savedRequest);
- }
- collectionManager.refreshTree();
-
- // Force save after adding request
- try {
- java.lang.reflect.Method saveMethod = collectionManager.getClass().getDeclaredMethod("saveCollections");
- saveMethod.setAccessible(true);
- saveMethod.invoke(collectionManager);
- } catch (Exception ex) {
- com.rct.util.LogManager.getInstance().log("Error saving collections: " + ex.getMessage());
- }
+ // Replaces a request with the same name, updates the tree and saves
+ collectionManager.putRequest(targetCollection, savedRequest);
 
  String newTabName = selectedCollection + " → " + requestName;
  setName(newTabName);
@@ -1242,34 +1205,10 @@ public class RequestTab {
  CollectionManager.SavedRequest savedRequest = new CollectionManager.SavedRequest(
  requestName, method, url, headersStr.toString(), body, paramsStr.toString());
 
- CollectionManager.Collection targetCollection = null;
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(collectionName)) {
- targetCollection = collection;
- break;
- }
- }
-
+ CollectionManager.Collection targetCollection = collectionManager.findCollection(collectionName);
  if (targetCollection != null) {
- // Replace existing request
- for (int i = 0; i < targetCollection.getRequests().size(); i++) {
- CollectionManager.SavedRequest existingRequest = targetCollection.getRequests().get(i);
- if (existingRequest.getName().equals(requestName)) {
- targetCollection.getRequests().set(i, savedRequest);
- break;
- }
- }
-
- collectionManager.refreshTree();
-
- // Force save after updating request
- try {
- java.lang.reflect.Method saveMethod = collectionManager.getClass().getDeclaredMethod("saveCollections");
- saveMethod.setAccessible(true);
- saveMethod.invoke(collectionManager);
- } catch (Exception ex) {
- com.rct.util.LogManager.getInstance().log("Error saving collections: " + ex.getMessage());
- }
+ // Replace existing request; updates the tree and saves
+ collectionManager.putRequest(targetCollection, savedRequest);
 
  markAsSaved();
  if (tabUpdateCallback != null) {
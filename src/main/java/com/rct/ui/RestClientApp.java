@@ -247,12 +247,31 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
 
  JLabel title = new JLabel("<html><font color='" + com.rct.util.UITheme.ICON_HISTORY + "'>📜</font> History</html>");
  title.setFont(title.getFont().deriveFont(Font.BOLD, 14f));
- panel.add(title, BorderLayout.NORTH);
 
- JList<String> historyList = historyManager.getHistoryList();
+ // Filters as you type, once typing pauses
+ JTextField searchField = new JTextField();
+ searchField.putClientProperty("JTextField.placeholderText", "Search: GET host:api.example.com /users 4xx after:2024-05-01");
+ searchField.setToolTipText("<html>Terms separated by spaces, all must match:<br>" +
+ "GET or method:get &nbsp; host:name &nbsp; /path or path:/prefix &nbsp; 404, 4xx or status:5xx<br>" +
+ "after:yyyy-MM-dd &nbsp; before:yyyy-MM-dd &nbsp; any other text matches the host or path</html>");
+ javax.swing.Timer searchTimer = new javax.swing.Timer(200, e -> historyManager.search(searchField.getText()));
+ searchTimer.setRepeats(false);
+ searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+ @Override
+ public void insertUpdate(javax.swing.event.DocumentEvent e) { searchTimer.restart(); }
+ @Override
+ public void removeUpdate(javax.swing.event.DocumentEvent e) { searchTimer.restart(); }
+ @Override
+ public void changedUpdate(javax.swing.event.DocumentEvent e) { searchTimer.restart(); }
+ });
 
- // Enable drag and drop reordering for history
- com.rct.util.ReorderableListModel.enableReordering(historyList);
+ JPanel headerPanel = new JPanel(new BorderLayout(0, 5));
+ headerPanel.add(title, BorderLayout.NORTH);
+ headerPanel.add(searchField, BorderLayout.SOUTH);
+ panel.add(headerPanel, BorderLayout.NORTH);
+
+ // History stays in the order requests were sent, so unlike other lists it cannot be reordered
+ JList<String> historyList = historyManager.getHistoryList();
 
  historyList.addMouseListener(new java.awt.event.MouseAdapter() {
  @Override
@@ -438,7 +457,7 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
 
  private void showPerformanceTestDialog() {
  PerformanceTestDialog dialog = new PerformanceTestDialog(
- (Frame) SwingUtilities.getWindowAncestor(this));
+ (Frame) SwingUtilities.getWindowAncestor(this), environmentManager);
  dialog.setVisible(true);
  }
 
@@ -469,21 +488,11 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  }
 
  private void generateTestForRequest(CollectionManager.RequestTreeNode reqNode) {
- String collectionName = reqNode.getCollectionName();
- String method = reqNode.getMethod();
- String requestName = reqNode.getRequestName();
-
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(collectionName)) {
- for (CollectionManager.SavedRequest request : collection.getRequests()) {
- if (request.getName().equals(requestName) && request.getMethod().equals(method)) {
+ CollectionManager.SavedRequest request = collectionManager.findRequest(reqNode);
+ if (request != null) {
  TestGenerationDialog dialog = new TestGenerationDialog(
  (Frame) SwingUtilities.getWindowAncestor(this), request);
  dialog.setVisible(true);
- return;
- }
- }
- }
  }
  }
 
@@ -638,16 +647,7 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  }
 
  private CollectionManager.SavedRequest findRequest(String collectionName, String requestName, String method) {
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(collectionName)) {
- for (CollectionManager.SavedRequest request : collection.getRequests()) {
- if (request.getName().equals(requestName) && request.getMethod().equals(method)) {
- return request;
-  }
- }
- }
- }
- return null;
+ return collectionManager.findRequest(collectionName, method, requestName);
  }
 
  private com.rct.model.RestResponse executeRequest(CollectionManager.SavedRequest request) throws Exception {
@@ -727,18 +727,10 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  if (requestNode instanceof CollectionManager.RequestTreeNode) {
  CollectionManager.RequestTreeNode reqNode = (CollectionManager.RequestTreeNode) requestNode;
  String collectionName = reqNode.getCollectionName();
- String method = reqNode.getMethod();
- String requestName = reqNode.getRequestName();
  
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(collectionName)) {
- for (CollectionManager.SavedRequest request : collection.getRequests()) {
- if (request.getName().equals(requestName) && request.getMethod().equals(method)) {
+ CollectionManager.SavedRequest request = collectionManager.findRequest(reqNode);
+ if (request != null) {
  createNewTabFromSavedRequest(request, collectionName);
- return;
- }
- }
- }
  }
  }
  }
@@ -788,24 +780,12 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  String newName = JOptionPane.showInputDialog(this, "Enter new name:", reqNode.getRequestName());
  if (newName != null && !newName.trim().isEmpty()) {
  String collectionName = reqNode.getCollectionName();
- String method = reqNode.getMethod();
  String oldName = reqNode.getRequestName();
 
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(collectionName)) {
- for (CollectionManager.SavedRequest request : collection.getRequests()) {
- if (request.getName().equals(oldName) && request.getMethod().equals(method)) {
- request.setName(newName.trim());
- collectionManager.refreshTree();
-
- // Save the changes to file
-  try {
- java.lang.reflect.Method saveMethod = collectionManager.getClass().getDeclaredMethod("saveCollections");
- saveMethod.setAccessible(true);
- saveMethod.invoke(collectionManager);
- } catch (Exception ex) {
- com.rct.util.LogManager.getInstance().log("Error saving collections after rename: " + ex.getMessage());
- }
+ CollectionManager.SavedRequest request = collectionManager.findRequest(reqNode);
+ if (request != null) {
+ // Updates the tree and saves the change
+ collectionManager.renameRequest(request, newName.trim());
 
  // Update any open tabs with the old name
  String oldTabName = collectionName + " → " + oldName;
@@ -816,24 +796,14 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  updateTabTitle(tab);
  }
  }
- return;
-  }
- }
- }
  }
  }
  }
 
  private void copyAsCurl(CollectionManager.RequestTreeNode reqNode) {
  try {
- String collectionName = reqNode.getCollectionName();
- String method = reqNode.getMethod();
- String requestName = reqNode.getRequestName();
-
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(collectionName)) {
- for (CollectionManager.SavedRequest request : collection.getRequests()) {
- if (request.getName().equals(requestName) && request.getMethod().equals(method)) {
+ CollectionManager.SavedRequest request = collectionManager.findRequest(reqNode);
+ if (request != null) {
  StringBuilder curl = new StringBuilder();
  curl.append("curl -X ").append(request.getMethod());
  
@@ -887,9 +857,6 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  JOptionPane.showMessageDialog(this, "cURL command copied to clipboard!", "Success", JOptionPane.INFORMATION_MESSAGE);
  return;
  }
- }
- }
- }
  JOptionPane.showMessageDialog(this, "Request not found!", "Error", JOptionPane.ERROR_MESSAGE);
  } catch (Exception e) {
  JOptionPane.showMessageDialog(this, "Error generating cURL: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -900,21 +867,42 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  int selectedIndex = list.locationToIndex(new java.awt.Point(x, y));
  if (selectedIndex >= 0) {
  list.setSelectedIndex(selectedIndex);
-  java.util.List<HistoryManager.HistoryEntry> history = historyManager.getHistory();
- if (selectedIndex < history.size()) {
- HistoryManager.HistoryEntry entry = history.get(selectedIndex);
+ HistoryManager.HistoryEntry entry = historyManager.getEntry(selectedIndex);
+ if (entry != null) {
 
  JPopupMenu contextMenu = new JPopupMenu();
 
  JMenuItem copyAsCurlItem = new JMenuItem("<html><font color='" + com.rct.util.UITheme.ICON_GET + "'>📋</font> Copy as cURL</html>");
  copyAsCurlItem.addActionListener(e -> copyHistoryAsCurl(entry));
 
+ JMenuItem viewResponseItem = new JMenuItem("<html><font color='" + com.rct.util.UITheme.ICON_HISTORY + "'>📄</font> View Response</html>");
+ viewResponseItem.addActionListener(e -> showHistoryResponse(entry));
+
  contextMenu.add(copyAsCurlItem);
+ contextMenu.add(viewResponseItem);
  contextMenu.show(list, x, y);
  }
  }
  }
 
+ private void showHistoryResponse(HistoryManager.HistoryEntry entry) {
+ String body = historyManager.getResponseBody(entry);
+ if (body == null) {
+ String message = entry.getResponseBodyHash() == null ? "This response had no body." :
+ "The response body is no longer stored; older bodies are removed when the store reaches its size limit.";
+ JOptionPane.showMessageDialog(this, message, "Response", JOptionPane.INFORMATION_MESSAGE);
+ return;
+ }
+
+ JTextArea textArea = new JTextArea(com.rct.util.JsonFormatter.formatJson(body), 25, 80);
+ textArea.setEditable(false);
+ textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+ textArea.setCaretPosition(0);
+ JOptionPane.showMessageDialog(this, new JScrollPane(textArea),
+ entry.getMethod() + " " + entry.getUrl() + " - " + entry.getStatusCode() + " (" + entry.getTimestamp() + ")",
+ JOptionPane.PLAIN_MESSAGE);
+ }
+
  private void copyHistoryAsCurl(HistoryManager.HistoryEntry entry) {
  try {
  StringBuilder curl = new StringBuilder();
@@ -951,9 +939,8 @@ public class RestClientApp extends JPanel implements RequestTab.TabUpdateCallbac
  private void loadSelectedHistoryItem(JList<String> list) {
  int selectedIndex = list.getSelectedIndex();
  if (selectedIndex >= 0) {
- java.util.List<HistoryManager.HistoryEntry> history = historyManager.getHistory();
- if (selectedIndex < history.size()) {
- HistoryManager.HistoryEntry entry = history.get(selectedIndex);
+ HistoryManager.HistoryEntry entry = historyManager.getEntry(selectedIndex);
+ if (entry != null) {
  createNewTabFromHistoryEntry(entry);
  }
  }
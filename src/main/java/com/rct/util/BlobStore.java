@@ -0,0 +1,255 @@
+package com.rct.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content-addressed store for text blobs such as response bodies. A blob is named by the SHA-256 of
+ * its UTF-8 bytes and kept zlib-compressed (JDK Deflater) at dir/ab/abcdef..., so storing the same
+ * content twice costs nothing beyond the hash.
+ *
+ * put() hashes on the caller's thread and returns at once; compression, writing (temp file plus
+ * atomic rename) and eviction happen on one background thread, which also owns the size index.
+ * When the compressed total passes maxBytes, the least recently used blobs are deleted until it is
+ * back under EVICT_TO_FRACTION of the limit. get() returns null for content that has been evicted.
+ */
+public class BlobStore {
+ public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+ private static final double EVICT_TO_FRACTION = 0.9;
+ private static final String TEMP_SUFFIX = ".tmp";
+
+ private final Path dir;
+ private final long maxBytes;
+ private final ExecutorService writer;
+ // Content handed to put() that the writer has not stored yet, so get() can already see it
+ private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+
+ // Owned by the writer thread: compressed size and last use of every stored blob
+ private final Map<String, long[]> index = new HashMap<>();
+ private long totalBytes;
+
+ public BlobStore(Path dir, long maxBytes) {
+  this.dir = dir;
+  this.maxBytes = maxBytes;
+  this.writer = Executors.newSingleThreadExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "blob-store-" + dir.getFileName());
+   thread.setDaemon(true);
+   return thread;
+  });
+  writer.execute(this::scan);
+ }
+
+ // Hash under which content is (or will shortly be) stored; null for null or empty content
+ public String put(String content) {
+  if (content == null || content.isEmpty()) {
+   return null;
+  }
+  byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+  String hash = sha256(bytes);
+  if (pending.putIfAbsent(hash, bytes) == null && !submit(() -> store(hash, bytes))) {
+   pending.remove(hash);
+  }
+  return hash;
+ }
+
+ // Null if hash is unknown or the blob has been evicted
+ public String get(String hash) {
+  if (hash == null || !isHash(hash)) {
+   return null;
+  }
+  byte[] bytes = pending.get(hash);
+  if (bytes != null) {
+   return new String(bytes, StandardCharsets.UTF_8);
+  }
+  Path file = pathOf(hash);
+  try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+   ByteArrayOutputStream out = new ByteArrayOutputStream();
+   byte[] buffer = new byte[8192];
+   int read;
+   while ((read = in.read(buffer)) != -1) {
+    out.write(buffer, 0, read);
+   }
+   submit(() -> touch(hash));
+   return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  } catch (NoSuchFileException e) {
+   return null;
+  } catch (IOException e) {
+   LogManager.getInstance().log("Error reading blob " + hash + ": " + e.getMessage());
+   return null;
+  }
+ }
+
+ // Waits for queued writes, then stops the writer thread
+ public void close() {
+  writer.shutdown();
+  try {
+   writer.awaitTermination(5, TimeUnit.SECONDS);
+  } catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+  }
+ }
+
+ private boolean submit(Runnable task) {
+  try {
+   writer.execute(task);
+   return true;
+  } catch (RejectedExecutionException e) {
+   // Closed
+   return false;
+  }
+ }
+
+ private void store(String hash, byte[] bytes) {
+  try {
+   long[] known = index.get(hash);
+   Path file = pathOf(hash);
+   if (known != null && Files.exists(file)) {
+    touch(hash);
+    return;
+   }
+   Files.createDirectories(file.getParent());
+   byte[] compressed = deflate(bytes);
+   Path temp = file.resolveSibling(hash + TEMP_SUFFIX);
+   Files.write(temp, compressed);
+   try {
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+   } catch (AtomicMoveNotSupportedException e) {
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+   }
+   if (known != null) {
+    totalBytes -= known[0];
+   }
+   index.put(hash, new long[] {compressed.length, System.currentTimeMillis()});
+   totalBytes += compressed.length;
+   evictIfNeeded();
+  } catch (IOException e) {
+   LogManager.getInstance().log("Error storing blob " + hash + ": " + e.getMessage());
+  } finally {
+   pending.remove(hash);
+  }
+ }
+
+ private void touch(String hash) {
+  long[] entry = index.get(hash);
+  if (entry == null) return;
+  entry[1] = System.currentTimeMillis();
+  try {
+   // Persist the last use so the eviction order survives a restart
+   Files.setLastModifiedTime(pathOf(hash), FileTime.fromMillis(entry[1]));
+  } catch (IOException e) {
+   // Evicted or removed meanwhile; the in-memory order still applies
+  }
+ }
+
+ private void evictIfNeeded() {
+  if (totalBytes <= maxBytes) return;
+
+  List<Map.Entry<String, long[]>> byLastUse = new ArrayList<>(index.entrySet());
+  byLastUse.sort((a, b) -> Long.compare(a.getValue()[1], b.getValue()[1]));
+  long target = (long) (maxBytes * EVICT_TO_FRACTION);
+  int evicted = 0;
+  for (Map.Entry<String, long[]> entry : byLastUse) {
+   if (totalBytes <= target) break;
+   try {
+    Files.deleteIfExists(pathOf(entry.getKey()));
+   } catch (IOException e) {
+    LogManager.getInstance().log("Error evicting blob " + entry.getKey() + ": " + e.getMessage());
+    continue;
+   }
+   totalBytes -= entry.getValue()[0];
+   index.remove(entry.getKey());
+   evicted++;
+  }
+  LogManager.getInstance().log("Evicted " + evicted + " blobs from " + dir + ", " + totalBytes + " bytes kept");
+ }
+
+ // Rebuilds the index from the files on disk; runs first on the writer thread
+ private void scan() {
+  if (!Files.isDirectory(dir)) return;
+  try (DirectoryStream<Path> shards = Files.newDirectoryStream(dir)) {
+   for (Path shard : shards) {
+    if (!Files.isDirectory(shard)) continue;
+    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(shard)) {
+     for (Path blob : blobs) {
+      String name = blob.getFileName().toString();
+      if (name.endsWith(TEMP_SUFFIX)) {
+       // Left by a crash before the rename
+       Files.deleteIfExists(blob);
+      } else if (isHash(name)) {
+       long size = Files.size(blob);
+       index.put(name, new long[] {size, Files.getLastModifiedTime(blob).toMillis()});
+       totalBytes += size;
+      }
+     }
+    }
+   }
+   evictIfNeeded();
+  } catch (IOException e) {
+   LogManager.getInstance().log("Error scanning blob store " + dir + ": " + e.getMessage());
+  }
+ }
+
+ private Path pathOf(String hash) {
+  return dir.resolve(hash.substring(0, 2)).resolve(hash);
+ }
+
+ private static boolean isHash(String name) {
+  if (name.length() != 64) return false;
+  for (int i = 0; i < name.length(); i++) {
+   char c = name.charAt(i);
+   if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+  }
+  return true;
+ }
+
+ private static byte[] deflate(byte[] bytes) {
+  Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+  try {
+   deflater.setInput(bytes);
+   deflater.finish();
+   ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+   byte[] buffer = new byte[8192];
+   while (!deflater.finished()) {
+    out.write(buffer, 0, deflater.deflate(buffer));
+   }
+   return out.toByteArray();
+  } finally {
+   deflater.end();
+  }
+ }
+
+ private static String sha256(byte[] bytes) {
+  try {
+   byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+   StringBuilder hex = new StringBuilder(digest.length * 2);
+   for (byte b : digest) {
+    hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+   }
+   return hex.toString();
+  } catch (NoSuchAlgorithmException e) {
+   throw new IllegalStateException("SHA-256 is not available", e);
+  }
+ }
+}
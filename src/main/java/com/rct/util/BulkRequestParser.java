@@ -1,13 +1,33 @@
 package com.rct.util;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileReader;
-import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class BulkRequestParser {
+ // Thread-safe once configured; shared by every parse instead of one per file or per CSV cell
+ private static final ObjectMapper MAPPER = new ObjectMapper();
+ // CSV files larger than this are split into chunks of this size and parsed in parallel by parseFromFile
+ private static final long PARALLEL_CSV_CHUNK_BYTES = 32L * 1024 * 1024;
+
+ // Reads requests one at a time; close it (or use try-with-resources) if you stop early
+ public interface RequestIterator extends Iterator<BulkRequest>, Closeable {
+ // Read errors surface from hasNext()/next() as UncheckedIOException
+ @Override
+ void close() throws IOException;
+ }
 
  public static class BulkRequest {
  private String name;
@@ -53,35 +73,189 @@ public class BulkRequestParser {
  public void setCookies(Map<String, String> cookies) { this.cookies = cookies; }
  }
 
+ // Reads the whole file into a list; prefer iterate() or stream() for large files
  public static List<BulkRequest> parseFromFile(File file) throws Exception {
+ if (file.getName().toLowerCase().endsWith(".csv") && file.length() > PARALLEL_CSV_CHUNK_BYTES) {
+ return parseCsvInParallel(file, ForkJoinPool.commonPool());
+ }
+ List<BulkRequest> requests = new ArrayList<>();
+ try (RequestIterator it = iterate(file)) {
+ while (it.hasNext()) {
+ requests.add(it.next());
+ }
+ } catch (UncheckedIOException e) {
+ throw e.getCause();
+ }
+ return requests;
+ }
+
+ // Parses lazily: only the request being returned is held in memory, whatever the file size
+ public static RequestIterator iterate(File file) throws IOException {
  String fileName = file.getName().toLowerCase();
  if (fileName.endsWith(".json")) {
- return parseFromJson(file);
+ return new JsonRequestIterator(MAPPER.getFactory().createParser(file));
  } else if (fileName.endsWith(".csv")) {
- return parseFromCsv(file);
+ return new CsvRequestIterator(new CsvReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)));
  } else {
  throw new IllegalArgumentException("Unsupported file format. Only JSON and CSV are supported.");
  }
  }
 
- private static List<BulkRequest> parseFromJson(File file) throws Exception {
- ObjectMapper mapper = new ObjectMapper();
- JsonNode root = mapper.readTree(file);
- List<BulkRequest> requests = new ArrayList<>();
+ // Splits the file into byte ranges at record boundaries and parses them on the pool; same results as iterate()
+ public static List<BulkRequest> parseCsvInParallel(File file, ForkJoinPool pool) throws IOException {
+ Map<String, Integer> columnMap = columnMap(CsvReader.readHeader(file, StandardCharsets.UTF_8));
+ return CsvReader.parseInChunks(file, StandardCharsets.UTF_8, PARALLEL_CSV_CHUNK_BYTES, pool,
+ values -> parseCsvRequest(values, columnMap));
+ }
 
- if (root.isArray()) {
- for (JsonNode requestNode : root) {
- requests.add(parseJsonRequest(requestNode));
+ // Closing the stream closes the file
+ public static Stream<BulkRequest> stream(File file) throws IOException {
+ RequestIterator it = iterate(file);
+ return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false)
+ .onClose(() -> {
+ try {
+ it.close();
+ } catch (IOException e) {
+ throw new UncheckedIOException(e);
  }
- } else if (root.has("requests")) {
- for (JsonNode requestNode : root.get("requests")) {
- requests.add(parseJsonRequest(requestNode));
+ });
  }
+
+ // Accepts a top-level array of requests, {"requests": [...]}, or a single request object. Arrays are
+ // walked token by token and each element is read into a tree on its own.
+ private static class JsonRequestIterator implements RequestIterator {
+ private final JsonParser parser;
+ // Requests that had to be read as a tree (a single request, or "requests" given as an object)
+ private Iterator<JsonNode> buffered;
+ private boolean inArray;
+ private BulkRequest next;
+ private boolean finished;
+
+ JsonRequestIterator(JsonParser parser) throws IOException {
+ this.parser = parser;
+ try {
+ start();
+ } catch (IOException | RuntimeException e) {
+ parser.close();
+ throw e;
+ }
+ }
+
+ private void start() throws IOException {
+ JsonToken token = parser.nextToken();
+ if (token == null) {
+ finished = true;
+ } else if (token == JsonToken.START_ARRAY) {
+ inArray = true;
+ } else if (token == JsonToken.START_OBJECT) {
+ ObjectNode single = MAPPER.createObjectNode();
+ while (parser.nextToken() == JsonToken.FIELD_NAME) {
+ String field = parser.getCurrentName();
+ JsonToken value = parser.nextToken();
+ if (field.equals("requests") && value == JsonToken.START_ARRAY) {
+ inArray = true;
+ return;
+ }
+ JsonNode node = MAPPER.readTree(parser);
+ if (field.equals("requests")) {
+ buffered = node.iterator();
+ return;
+ }
+ single.set(field, node);
+ }
+ buffered = Collections.<JsonNode>singletonList(single).iterator();
  } else {
- requests.add(parseJsonRequest(root));
+ buffered = Collections.<JsonNode>singletonList(MAPPER.readTree(parser)).iterator();
+ }
  }
 
- return requests;
+ @Override
+ public boolean hasNext() {
+ if (next == null && !finished) {
+ try {
+ next = advance();
+ } catch (IOException e) {
+ throw new UncheckedIOException(e);
+ }
+ finished = next == null;
+ }
+ return next != null;
+ }
+
+ @Override
+ public BulkRequest next() {
+ if (!hasNext()) throw new NoSuchElementException();
+ BulkRequest request = next;
+ next = null;
+ return request;
+ }
+
+ private BulkRequest advance() throws IOException {
+ if (buffered != null) {
+ return buffered.hasNext() ? parseJsonRequest(buffered.next()) : null;
+ }
+ if (inArray) {
+ JsonToken token = parser.nextToken();
+ if (token != null && token != JsonToken.END_ARRAY) {
+ return parseJsonRequest(MAPPER.readTree(parser));
+ }
+ }
+ return null;
+ }
+
+ @Override
+ public void close() throws IOException {
+ parser.close();
+ }
+ }
+
+ private static class CsvRequestIterator implements RequestIterator {
+ private final CsvReader reader;
+ private final Map<String, Integer> columnMap;
+ private BulkRequest next;
+ private boolean finished;
+
+ CsvRequestIterator(CsvReader reader) throws IOException {
+ this.reader = reader;
+ String[] header;
+ try {
+ header = reader.readRecord();
+ } catch (IOException e) {
+ reader.close();
+ throw e;
+ }
+ finished = header == null;
+ columnMap = columnMap(header != null ? header : new String[0]);
+ }
+
+ @Override
+ public boolean hasNext() {
+ while (next == null && !finished) {
+ try {
+ if (!reader.nextRecord()) {
+ finished = true;
+ } else if (!reader.isBlankRecord()) {
+ next = parseCsvRequest(reader.getFields(), columnMap);
+ }
+ } catch (IOException e) {
+ throw new UncheckedIOException(e);
+ }
+ }
+ return next != null;
+ }
+
+ @Override
+ public BulkRequest next() {
+ if (!hasNext()) throw new NoSuchElementException();
+ BulkRequest request = next;
+ next = null;
+ return request;
+ }
+
+ @Override
+ public void close() throws IOException {
+ reader.close();
+ }
  }
 
  private static BulkRequest parseJsonRequest(JsonNode node) {
@@ -133,32 +307,6 @@ public class BulkRequestParser {
  return request;
  }
 
- private static List<BulkRequest> parseFromCsv(File file) throws Exception {
- List<BulkRequest> requests = new ArrayList<>();
-
- try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
- String headerLine = reader.readLine();
- if (headerLine == null) return requests;
-
- String[] headers = headerLine.split(",");
- Map<String, Integer> columnMap = new HashMap<>();
-
- for (int i = 0; i < headers.length; i++) {
- columnMap.put(headers[i].trim().toLowerCase(), i);
- }
-
- String line;
- while ((line = reader.readLine()) != null) {
- String[] values = parseCsvLine(line);
- if (values.length > 0) {
- requests.add(parseCsvRequest(values, columnMap));
- }
- }
- }
-
- return requests;
- }
-
  private static BulkRequest parseCsvRequest(String[] values, Map<String, Integer> columnMap) {
  BulkRequest request = new BulkRequest();
 
@@ -193,25 +341,12 @@ public class BulkRequestParser {
  return request;
  }
 
- private static String[] parseCsvLine(String line) {
- List<String> result = new ArrayList<>();
- boolean inQuotes = false;
- StringBuilder current = new StringBuilder();
-
- for (int i = 0; i < line.length(); i++) {
- char c = line.charAt(i);
- if (c == '"') {
- inQuotes = !inQuotes;
- } else if (c == ',' && !inQuotes) {
-  result.add(current.toString().trim());
- current = new StringBuilder();
- } else {
- current.append(c);
- }
+ private static Map<String, Integer> columnMap(String[] header) {
+ Map<String, Integer> columnMap = new HashMap<>();
+ for (int i = 0; i < header.length; i++) {
+ columnMap.put(header[i].trim().toLowerCase(), i);
  }
- result.add(current.toString().trim());
-
- return result.toArray(new String[0]);
+ return columnMap;
  }
 
  private static String getStringValue(JsonNode node, String key, String defaultValue) {
@@ -221,10 +356,8 @@ public class BulkRequestParser {
  private static String getCsvValue(String[] values, Map<String, Integer> columnMap, String column, String defaultValue) {
  Integer index = columnMap.get(column);
  if (index != null && index < values.length) {
+ // CsvReader has already removed the quoting, so quotes left in the value are part of it
  String value = values[index].trim();
- if (value.startsWith("\"") && value.endsWith("\"")) {
- value = value.substring(1, value.length() - 1);
- }
  return value.isEmpty() ? defaultValue : value;
  }
  return defaultValue;
@@ -234,8 +367,7 @@ public class BulkRequestParser {
  if (jsonStr == null || jsonStr.trim().isEmpty() || jsonStr.equals("{}")) return;
 
  try {
- ObjectMapper mapper = new ObjectMapper();
- JsonNode node = mapper.readTree(jsonStr);
+ JsonNode node = MAPPER.readTree(jsonStr);
  if (node.isObject()) {
  node.fields().forEachRemaining(entry ->
  map.put(entry.getKey(), entry.getValue().asText()));
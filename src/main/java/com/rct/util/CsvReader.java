@@ -0,0 +1,406 @@
+package com.rct.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * RFC 4180 CSV reader: quoted fields may contain commas, line breaks and "" for a literal quote, and
+ * records end in LF, CRLF or CR. The read buffer and the current record are reused from one record
+ * to the next; a field only becomes a String when it is asked for.
+ *
+ * parseInChunks() splits a large file into byte ranges that start on record boundaries and parses
+ * them in parallel, for files where a single core would be the bottleneck.
+ */
+public final class CsvReader implements Closeable {
+ private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+ private static final int SCAN_BUFFER_SIZE = 256 * 1024;
+
+ private final Reader in;
+ private final char[] buffer;
+ private int position;
+ private int limit;
+ private boolean endOfInput;
+ private boolean startOfInput = true;
+
+ // The current record's unescaped characters back to back; field i ends at fieldEnds[i]
+ private char[] record = new char[256];
+ private int recordLength;
+ private int[] fieldEnds = new int[16];
+ private int fieldCount;
+ private long recordNumber;
+
+ public CsvReader(Reader in) {
+  this(in, DEFAULT_BUFFER_SIZE);
+ }
+
+ public CsvReader(Reader in, int bufferSize) {
+  this.in = in;
+  this.buffer = new char[Math.max(16, bufferSize)];
+ }
+
+ // Advances to the next record; false at end of input
+ public boolean nextRecord() throws IOException {
+  recordLength = 0;
+  fieldCount = 0;
+  if (!ensureInput()) {
+   return false;
+  }
+  if (startOfInput) {
+   startOfInput = false;
+   if (buffer[position] == '\uFEFF') {
+    position++;
+   }
+  }
+
+  boolean quoted = false;
+  int fieldStart = 0;
+  while (true) {
+   if (!ensureInput()) {
+    endField();
+    break;
+   }
+
+   if (quoted) {
+    // Copy up to the next quote in one go
+    int start = position;
+    while (position < limit && buffer[position] != '"') position++;
+    append(buffer, start, position - start);
+    if (position == limit) continue;
+    position++;
+    if (!ensureInput() || buffer[position] != '"') {
+     quoted = false;
+    } else {
+     // "" inside a quoted field
+     append('"');
+     position++;
+    }
+    continue;
+   }
+
+   int start = position;
+   char c = 0;
+   while (position < limit) {
+    c = buffer[position];
+    if (c == ',' || c == '\n' || c == '\r' || c == '"') break;
+    position++;
+   }
+   append(buffer, start, position - start);
+   if (position == limit) continue;
+   position++;
+
+   if (c == ',') {
+    endField();
+    fieldStart = recordLength;
+   } else if (c == '"') {
+    if (recordLength == fieldStart) {
+     quoted = true;
+    } else {
+     // Stray quote inside an unquoted field; kept as text
+     append('"');
+    }
+   } else {
+    if (c == '\r' && ensureInput() && buffer[position] == '\n') {
+     position++;
+    }
+    endField();
+    break;
+   }
+  }
+  recordNumber++;
+  return true;
+ }
+
+ // The next record's fields, or null at end of input
+ public String[] readRecord() throws IOException {
+  return nextRecord() ? getFields() : null;
+ }
+
+ public int getFieldCount() { return fieldCount; }
+
+ // 1 for the first record read
+ public long getRecordNumber() { return recordNumber; }
+
+ public String getField(int index) {
+  if (index < 0 || index >= fieldCount) {
+   throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+  }
+  int start = index == 0 ? 0 : fieldEnds[index - 1];
+  return new String(record, start, fieldEnds[index] - start);
+ }
+
+ public int getFieldLength(int index) {
+  return fieldEnds[index] - (index == 0 ? 0 : fieldEnds[index - 1]);
+ }
+
+ public String[] getFields() {
+  String[] fields = new String[fieldCount];
+  for (int i = 0; i < fieldCount; i++) {
+   fields[i] = getField(i);
+  }
+  return fields;
+ }
+
+ // An empty line; RFC 4180 makes it a record with one empty field, which callers usually skip
+ public boolean isBlankRecord() {
+  return fieldCount == 1 && recordLength == 0;
+ }
+
+ @Override
+ public void close() throws IOException {
+  in.close();
+ }
+
+ private boolean ensureInput() throws IOException {
+  if (position < limit) return true;
+  if (endOfInput) return false;
+  int read;
+  do {
+   read = in.read(buffer, 0, buffer.length);
+  } while (read == 0);
+  if (read < 0) {
+   endOfInput = true;
+   return false;
+  }
+  position = 0;
+  limit = read;
+  return true;
+ }
+
+ private void append(char c) {
+  if (recordLength == record.length) {
+   record = Arrays.copyOf(record, record.length * 2);
+  }
+  record[recordLength++] = c;
+ }
+
+ private void append(char[] source, int offset, int length) {
+  if (length == 0) return;
+  if (recordLength + length > record.length) {
+   record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + length));
+  }
+  System.arraycopy(source, offset, record, recordLength, length);
+  recordLength += length;
+ }
+
+ private void endField() {
+  if (fieldCount == fieldEnds.length) {
+   fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+  }
+  fieldEnds[fieldCount++] = recordLength;
+ }
+
+ // --- Chunked parallel parsing ---
+
+ // The first record of the file, or an empty array for an empty file
+ public static String[] readHeader(File file, Charset charset) throws IOException {
+  try (CsvReader reader = new CsvReader(new InputStreamReader(java.nio.file.Files.newInputStream(file.toPath()), charset), 4096)) {
+   String[] header = reader.readRecord();
+   return header != null ? header : new String[0];
+  }
+ }
+
+ /**
+  * Parses every record after the header, in file order, on the given pool. The file is cut into
+  * ranges of about chunkBytes; each range is moved forward to the next line break that is outside
+  * quotes, found from per-range quote counts, so a quoted line break never splits a record.
+  * Blank records are skipped, as are records the mapper returns null for. The charset must
+  * encode '"' and line breaks as single ASCII bytes (UTF-8, ISO-8859-x, windows-125x).
+  */
+ public static <T> List<T> parseInChunks(File file, Charset charset, long chunkBytes, ForkJoinPool pool,
+                                         Function<String[], T> mapper) throws IOException {
+  try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+   long size = channel.size();
+   long dataStart = endOfFirstRecord(channel, size);
+   if (dataStart >= size) {
+    return new ArrayList<>();
+   }
+
+   // Pass 1: quote parity and candidate record starts for each nominal range, in parallel
+   int chunkCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (size - dataStart + chunkBytes - 1) / Math.max(1, chunkBytes)));
+   long[] nominalStarts = new long[chunkCount + 1];
+   for (int i = 0; i < chunkCount; i++) {
+    nominalStarts[i] = dataStart + (size - dataStart) * i / chunkCount;
+   }
+   nominalStarts[chunkCount] = size;
+
+   List<Callable<ChunkScan>> scans = new ArrayList<>();
+   for (int i = 0; i < chunkCount; i++) {
+    long start = nominalStarts[i];
+    long end = nominalStarts[i + 1];
+    scans.add(() -> scan(channel, start, end));
+   }
+   List<ChunkScan> scanned = invokeAll(pool, scans);
+
+   // Ranges start where the file's quote parity says a line break is outside quotes
+   List<Long> boundaries = new ArrayList<>();
+   boundaries.add(dataStart);
+   long quotes = 0;
+   for (int i = 0; i < chunkCount; i++) {
+    ChunkScan scan = scanned.get(i);
+    if (i > 0) {
+     long lineBreak = scan.firstLineBreak[(int) (quotes & 1)];
+     if (lineBreak >= 0 && lineBreak + 1 < size && lineBreak + 1 > boundaries.get(boundaries.size() - 1)) {
+      boundaries.add(lineBreak + 1);
+     }
+    }
+    quotes += scan.quotes;
+   }
+   boundaries.add(size);
+
+   // Pass 2: parse the ranges in parallel and keep the results in file order
+   List<Callable<List<T>>> parses = new ArrayList<>();
+   for (int i = 0; i + 1 < boundaries.size(); i++) {
+    long start = boundaries.get(i);
+    long end = boundaries.get(i + 1);
+    parses.add(() -> {
+     List<T> results = new ArrayList<>();
+     try (CsvReader reader = new CsvReader(new InputStreamReader(new RangeInputStream(channel, start, end), charset))) {
+      reader.startOfInput = start == 0;
+      while (reader.nextRecord()) {
+       if (reader.isBlankRecord()) continue;
+       T result = mapper.apply(reader.getFields());
+       if (result != null) {
+        results.add(result);
+       }
+      }
+     }
+     return results;
+    });
+   }
+
+   List<T> all = new ArrayList<>();
+   for (List<T> part : invokeAll(pool, parses)) {
+    all.addAll(part);
+   }
+   return all;
+  }
+ }
+
+ private static <V> List<V> invokeAll(ForkJoinPool pool, List<Callable<V>> tasks) throws IOException {
+  List<V> results = new ArrayList<>(tasks.size());
+  try {
+   for (Future<V> future : pool.invokeAll(tasks)) {
+    results.add(future.get());
+   }
+  } catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+   throw new IOException("Interrupted while parsing CSV", e);
+  } catch (ExecutionException e) {
+   Throwable cause = e.getCause();
+   if (cause instanceof IOException) throw (IOException) cause;
+   if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+   throw new IOException(cause);
+  }
+  return results;
+ }
+
+ // Byte offset just past the header record's line break (or the end of the file)
+ private static long endOfFirstRecord(FileChannel channel, long size) throws IOException {
+  ByteBuffer bytes = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+  boolean quoted = false;
+  long offset = 0;
+  while (offset < size) {
+   bytes.clear();
+   int read = channel.read(bytes, offset);
+   if (read <= 0) break;
+   byte[] array = bytes.array();
+   for (int i = 0; i < read; i++) {
+    byte b = array[i];
+    if (b == '"') {
+     quoted = !quoted;
+    } else if (!quoted && (b == '\n' || b == '\r')) {
+     long end = offset + i + 1;
+     if (b == '\r') {
+      // CRLF counts as one line break
+      ByteBuffer next = ByteBuffer.allocate(1);
+      if (end < size && channel.read(next, end) == 1 && next.get(0) == '\n') end++;
+     }
+     return end;
+    }
+   }
+   offset += read;
+  }
+  return size;
+ }
+
+ private static ChunkScan scan(FileChannel channel, long start, long end) throws IOException {
+  ChunkScan scan = new ChunkScan();
+  ByteBuffer bytes = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+  long offset = start;
+  while (offset < end) {
+   bytes.clear();
+   bytes.limit((int) Math.min(bytes.capacity(), end - offset));
+   int read = channel.read(bytes, offset);
+   if (read <= 0) break;
+   byte[] array = bytes.array();
+   for (int i = 0; i < read; i++) {
+    byte b = array[i];
+    if (b == '"') {
+     scan.quotes++;
+    } else if (b == '\n') {
+     int parity = (int) (scan.quotes & 1);
+     if (scan.firstLineBreak[parity] < 0) {
+      scan.firstLineBreak[parity] = offset + i;
+     }
+    }
+   }
+   offset += read;
+  }
+  return scan;
+ }
+
+ // Quotes in a range, and its first LF seen after an even / odd number of them
+ private static class ChunkScan {
+  long quotes;
+  final long[] firstLineBreak = {-1, -1};
+ }
+
+ // Positional reads, so every range can be read from the same channel at once
+ private static class RangeInputStream extends InputStream {
+  private final FileChannel channel;
+  private long position;
+  private final long end;
+
+  RangeInputStream(FileChannel channel, long start, long end) {
+   this.channel = channel;
+   this.position = start;
+   this.end = end;
+  }
+
+  @Override
+  public int read() throws IOException {
+   byte[] one = new byte[1];
+   return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+   if (position >= end) return -1;
+   int toRead = (int) Math.min(len, end - position);
+   int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+   if (read > 0) position += read;
+   return read;
+  }
+
+  @Override
+  public void close() {
+   // The channel is shared by all ranges and closed by parseInChunks
+  }
+ }
+}
@@ -0,0 +1,285 @@
+package com.rct.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams rows from a CSV file (first row holds the column names) or a JSON Lines file, one row per
+ * request, to bind into {{column}} placeholders. A background thread reads ahead into a bounded
+ * buffer, so memory depends on the prefetch size rather than the file size, and any number of
+ * threads can take rows without touching the disk themselves.
+ */
+public class DataFeeder implements Closeable {
+ public static final int DEFAULT_PREFETCH_ROWS = 1024;
+
+ private static final ObjectMapper MAPPER = new ObjectMapper();
+ private static final int READ_BUFFER_SIZE = 64 * 1024;
+ // Queued after the last row of a sequential feed, or after a read failure; compared by identity
+ private static final Map<String, String> END = new HashMap<>(0);
+
+ public enum Format {
+  CSV("CSV (header row)"),
+  JSONL("JSON Lines");
+
+  private final String displayName;
+
+  Format(String displayName) {
+   this.displayName = displayName;
+  }
+
+  public String getDisplayName() { return displayName; }
+
+  @Override
+  public String toString() { return displayName; }
+
+  public static Format forFile(File file) {
+   String name = file.getName().toLowerCase();
+   return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSONL : CSV;
+  }
+ }
+
+ public enum Strategy {
+  SEQUENTIAL("Sequential (stop at end)"),
+  CIRCULAR("Circular (restart at end)"),
+  // Shuffled within a window of prefetch-size rows, so a multi-GB file never has to be held in memory
+  RANDOM("Random (restart at end)");
+
+  private final String displayName;
+
+  Strategy(String displayName) {
+   this.displayName = displayName;
+  }
+
+  public String getDisplayName() { return displayName; }
+
+  @Override
+  public String toString() { return displayName; }
+ }
+
+ private final File file;
+ private final Format format;
+ private final Strategy strategy;
+ private final int prefetchRows;
+ private final BlockingQueue<Map<String, String>> buffer;
+ private final Thread reader;
+ private final AtomicLong rowsDelivered = new AtomicLong();
+ private volatile boolean closed;
+ private volatile boolean exhausted;
+ private volatile Exception failure;
+
+ public DataFeeder(File file, Format format, Strategy strategy) throws IOException {
+  this(file, format, strategy, DEFAULT_PREFETCH_ROWS);
+ }
+
+ // Opens the file (and reads the CSV header) before returning, so a missing or empty file fails here
+ public DataFeeder(File file, Format format, Strategy strategy, int prefetchRows) throws IOException {
+  this.file = file;
+  this.format = format;
+  this.strategy = strategy;
+  this.prefetchRows = Math.max(1, prefetchRows);
+  this.buffer = new ArrayBlockingQueue<>(this.prefetchRows);
+
+  RowReader first = openRows();
+  this.reader = new Thread(() -> readLoop(first), "data-feeder-" + file.getName());
+  reader.setDaemon(true);
+  reader.start();
+ }
+
+ // The next row, waiting for the reader if it has fallen behind. Null once a sequential feed has
+ // run out, the file could not be read (see getFailure), the feeder is closed or the caller is interrupted.
+ public Map<String, String> next() {
+  if (exhausted) {
+   return null;
+  }
+  Map<String, String> row;
+  try {
+   row = buffer.take();
+  } catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+   return null;
+  }
+  if (row == END) {
+   exhausted = true;
+   // Leave the marker for every other caller waiting on the buffer
+   buffer.offer(END);
+   return null;
+  }
+  rowsDelivered.incrementAndGet();
+  return row;
+ }
+
+ public long getRowsDelivered() { return rowsDelivered.get(); }
+ public boolean isExhausted() { return exhausted; }
+ public Exception getFailure() { return failure; }
+ public File getFile() { return file; }
+ public Strategy getStrategy() { return strategy; }
+
+ @Override
+ public void close() {
+  closed = true;
+  exhausted = true;
+  reader.interrupt();
+  // Wake up callers blocked in next()
+  while (!buffer.offer(END)) {
+   buffer.clear();
+  }
+ }
+
+ private void readLoop(RowReader first) {
+  RowReader rows = first;
+  // RANDOM: each row read replaces a random row of the window, which is handed out instead
+  List<Map<String, String>> window = strategy == Strategy.RANDOM ? new ArrayList<>() : null;
+  int windowSize = prefetchRows;
+
+  try {
+   while (!closed) {
+    long rowsThisPass = 0;
+    Map<String, String> row;
+    while (!closed && (row = rows.next()) != null) {
+     rowsThisPass++;
+     if (window == null) {
+      buffer.put(row);
+     } else if (window.size() < windowSize) {
+      window.add(row);
+     } else {
+      int slot = ThreadLocalRandom.current().nextInt(windowSize);
+      buffer.put(window.get(slot));
+      window.set(slot, row);
+     }
+    }
+    rows.close();
+
+    if (closed || strategy == Strategy.SEQUENTIAL || rowsThisPass == 0) break;
+    if (window != null && window.size() < windowSize) {
+     // The whole file fits in the window; sample from it from now on
+     windowSize = window.size();
+    }
+    rows = openRows();
+   }
+  } catch (InterruptedException e) {
+   // Closed
+  } catch (IOException | RuntimeException e) {
+   failure = e;
+   LogManager.getInstance().log("Error reading data file " + file.getName() + ": " + e.getMessage());
+  } finally {
+   try {
+    rows.close();
+   } catch (IOException e) {
+    // Already failed or finished
+   }
+   if (!closed) {
+    try {
+     buffer.put(END);
+    } catch (InterruptedException e) {
+     // Closed while the buffer was full; close() queues the marker itself
+    }
+   }
+  }
+ }
+
+ private RowReader openRows() throws IOException {
+  BufferedReader in = new BufferedReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+  try {
+   return format == Format.JSONL ? new JsonLinesRows(in) : new CsvRows(in);
+  } catch (IOException | RuntimeException e) {
+   in.close();
+   throw e;
+  }
+ }
+
+ private interface RowReader extends Closeable {
+  // Null at end of file
+  Map<String, String> next() throws IOException;
+ }
+
+ private static class CsvRows implements RowReader {
+  private final CsvReader in;
+  private final String[] columns;
+
+  // RFC 4180: quoted fields may hold commas, line breaks and "" for a literal quote
+  CsvRows(BufferedReader in) throws IOException {
+   this.in = new CsvReader(in);
+   String[] header = this.in.readRecord();
+   if (header == null) {
+    throw new IOException("CSV file is empty; the first row must name the columns");
+   }
+   this.columns = new String[header.length];
+   for (int i = 0; i < columns.length; i++) {
+    columns[i] = header[i].trim();
+   }
+  }
+
+  @Override
+  public Map<String, String> next() throws IOException {
+   do {
+    if (!in.nextRecord()) return null;
+   } while (in.isBlankRecord());
+
+   int fieldCount = in.getFieldCount();
+   Map<String, String> row = new HashMap<>(columns.length * 2);
+   for (int i = 0; i < columns.length; i++) {
+    row.put(columns[i], i < fieldCount ? in.getField(i) : "");
+   }
+   return row;
+  }
+
+  @Override
+  public void close() throws IOException {
+   in.close();
+  }
+ }
+
+ private static class JsonLinesRows implements RowReader {
+  private final BufferedReader in;
+  private long lineNumber;
+
+  JsonLinesRows(BufferedReader in) {
+   this.in = in;
+  }
+
+  @Override
+  public Map<String, String> next() throws IOException {
+   String line;
+   do {
+    line = in.readLine();
+    lineNumber++;
+    if (line == null) return null;
+   } while (line.trim().isEmpty());
+
+   JsonNode node = MAPPER.readTree(line);
+   if (!node.isObject()) {
+    throw new IOException("Line " + lineNumber + " is not a JSON object");
+   }
+   Map<String, String> row = new HashMap<>(node.size() * 2);
+   Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+   while (it.hasNext()) {
+    Map.Entry<String, JsonNode> entry = it.next();
+    JsonNode value = entry.getValue();
+    // Nested objects and arrays are bound as their JSON text
+    row.put(entry.getKey(), value.isValueNode() ? (value.isNull() ? "" : value.asText()) : value.toString());
+   }
+   return row;
+  }
+
+  @Override
+  public void close() throws IOException {
+   in.close();
+  }
+ }
+}
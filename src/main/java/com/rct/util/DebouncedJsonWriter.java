@@ -0,0 +1,131 @@
+package com.rct.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes a JSON file in the background. submit() hands over an immutable snapshot and returns at
+ * once; the first snapshot after a write schedules the next write delayMs later, and snapshots
+ * submitted meanwhile replace it, so a burst of changes costs one write.
+ *
+ * Each write goes to a temp file next to the target, is forced to disk and then atomically renamed
+ * over it, so a crash leaves either the previous or the new file, never a partial one. Subclasses
+ * that store a snapshot differently override write().
+ */
+public class DebouncedJsonWriter {
+ private final Path file;
+ private final ObjectMapper objectMapper;
+ private final long delayMs;
+ private final ScheduledExecutorService executor;
+ // Latest snapshot not yet written; null when everything submitted is on disk
+ private final AtomicReference<Object> pending = new AtomicReference<>();
+
+ public DebouncedJsonWriter(Path file, ObjectMapper objectMapper, long delayMs) {
+  this.file = file;
+  this.objectMapper = objectMapper;
+  this.delayMs = delayMs;
+  this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+   Thread thread = new Thread(runnable, "json-writer-" + file.getFileName());
+   thread.setDaemon(true);
+   return thread;
+  });
+ }
+
+ // snapshot must not be modified afterwards; the writer serializes it on its own thread
+ public void submit(Object snapshot) {
+  if (pending.getAndSet(snapshot) == null) {
+   try {
+    executor.schedule(this::writePending, delayMs, TimeUnit.MILLISECONDS);
+   } catch (RejectedExecutionException e) {
+    // Closed: write on the caller's thread rather than lose the change
+    writePending();
+   }
+  }
+ }
+
+ // Writes any pending snapshot now and waits for it
+ public void flush() {
+  try {
+   Future<?> write = executor.submit(this::writePending);
+   write.get();
+  } catch (RejectedExecutionException e) {
+   writePending();
+  } catch (ExecutionException e) {
+   LogManager.getInstance().log("Error writing " + file.getFileName() + ": " + e.getCause().getMessage());
+  } catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+  }
+ }
+
+ // Flushes, then stops the writer thread
+ public void close() {
+  flush();
+  executor.shutdown();
+ }
+
+ private void writePending() {
+  Object snapshot = pending.getAndSet(null);
+  if (snapshot == null) return;
+  try {
+   write(snapshot);
+  } catch (IOException e) {
+   LogManager.getInstance().log("Error writing " + file.getFileName() + ": " + e.getMessage());
+  }
+ }
+
+ // Runs on the writer thread
+ protected void write(Object snapshot) throws IOException {
+  writeAtomically(file, objectMapper, snapshot);
+ }
+
+ public static void writeAtomically(Path file, ObjectMapper objectMapper, Object value) throws IOException {
+  Files.createDirectories(file.toAbsolutePath().getParent());
+  Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+  try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+   OutputStream out = Channels.newOutputStream(channel);
+   objectMapper.writeValue(new BufferedOutputStream(new NonClosingOutputStream(out), 64 * 1024), value);
+   channel.force(true);
+  }
+  try {
+   Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  } catch (AtomicMoveNotSupportedException e) {
+   Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+ }
+
+ // Lets Jackson close its stream without closing the channel before it is forced
+ private static final class NonClosingOutputStream extends FilterOutputStream {
+  NonClosingOutputStream(OutputStream out) {
+   super(out);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+   out.write(b, off, len);
+  }
+
+  @Override
+  public void close() throws IOException {
+   flush();
+  }
+ }
+}
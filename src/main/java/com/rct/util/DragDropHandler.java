@@ -99,34 +99,10 @@ public class DragDropHandler {
  }
 
  private void moveRequest(CollectionManager.RequestTreeNode sourceNode, String targetCollection) {
- CollectionManager.SavedRequest request = null;
-
- // Find and remove from source
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(sourceNode.getCollectionName())) {
- java.util.Iterator<CollectionManager.SavedRequest> it = collection.getRequests().iterator();
- while (it.hasNext()) {
- CollectionManager.SavedRequest req = it.next();
- if (req.getName().equals(sourceNode.getRequestName()) &&
- req.getMethod().equals(sourceNode.getMethod())) {
- request = req;
- it.remove();
- break;
- }
- }
- break;
- }
- }
-
- // Add to target
+ CollectionManager.SavedRequest request = collectionManager.findRequest(sourceNode);
  if (request != null) {
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(targetCollection)) {
- collection.addRequest(request);
- break;
- }
- }
- collectionManager.refreshTree();
+ // Updates the tree and saves
+ collectionManager.moveRequest(request, targetCollection);
  }
  }
 
@@ -134,42 +110,21 @@ public class DragDropHandler {
   CollectionManager.RequestTreeNode targetNode, int childIndex) {
  if (!sourceNode.getCollectionName().equals(targetNode.getCollectionName())) return;
 
- for (CollectionManager.Collection collection : collectionManager.getCollections()) {
- if (collection.getName().equals(sourceNode.getCollectionName())) {
- java.util.List<CollectionManager.SavedRequest> requests = collection.getRequests();
+ CollectionManager.Collection collection = collectionManager.findCollection(sourceNode.getCollectionName());
+ CollectionManager.SavedRequest sourceRequest = collectionManager.findRequest(sourceNode);
+ CollectionManager.SavedRequest targetRequest = collectionManager.findRequest(targetNode);
+ if (collection == null || sourceRequest == null || targetRequest == null) return;
 
- // Find source request
- CollectionManager.SavedRequest sourceRequest = null;
- int sourceIndex = -1;
- for (int i = 0; i < requests.size(); i++) {
- CollectionManager.SavedRequest req = requests.get(i);
- if (req.getName().equals(sourceNode.getRequestName()) &&
- req.getMethod().equals(sourceNode.getMethod())) {
- sourceRequest = req;
- sourceIndex = i;
-  break;
- }
- }
-
- // Find target index
- int targetIndex = -1;
- for (int i = 0; i < requests.size(); i++) {
- CollectionManager.SavedRequest req = requests.get(i);
- if (req.getName().equals(targetNode.getRequestName()) &&
- req.getMethod().equals(targetNode.getMethod())) {
- targetIndex = i;
- break;
- }
- }
+ java.util.List<CollectionManager.SavedRequest> requests = collection.getRequests();
+ int sourceIndex = requests.indexOf(sourceRequest);
+ int targetIndex = requests.indexOf(targetRequest);
 
- if (sourceRequest != null && sourceIndex != -1 && targetIndex != -1 && sourceIndex != targetIndex) {
+ if (sourceIndex != -1 && targetIndex != -1 && sourceIndex != targetIndex) {
  requests.remove(sourceIndex);
  if (targetIndex > sourceIndex) targetIndex--;
  requests.add(targetIndex, sourceRequest);
  collectionManager.refreshTree();
- }
- break;
- }
+ collectionManager.saveCollections();
  }
  }
  }
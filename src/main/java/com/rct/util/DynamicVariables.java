@@ -0,0 +1,153 @@
+package com.rct.util;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Built-in {{$name}} variables whose value is generated each time a request is resolved:
+ *
+ *   {{$uuid}}                random (version 4) UUID
+ *   {{$timestamp}}           current time in epoch milliseconds
+ *   {{$isoTimestamp}}        current time as ISO-8601 UTC
+ *   {{$randomInt}}           random integer 0-1000; {{$randomInt(min,max)}} for an inclusive range
+ *   {{$randomString}}        16 random letters and digits; {{$randomString(length)}} for another length
+ *   {{$userIndex}}           simulated user sending the request, from 0 (load tests only)
+ *   {{$iteration}}           that user's request number, from 0 (load tests only)
+ *
+ * In open-model load tests there are no users, so both are the arrival's sequence number.
+ *
+ * Random values come from ThreadLocalRandom, so concurrent users never contend on a shared generator.
+ * They are meant for cache busting and unique payloads, not for anything security sensitive.
+ */
+public final class DynamicVariables {
+ public static final String PREFIX = "$";
+
+ private static final int DEFAULT_RANDOM_INT_MAX = 1000;
+ private static final int DEFAULT_RANDOM_STRING_LENGTH = 16;
+ private static final char[] ALPHANUMERIC =
+         "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+ // Parsed once per distinct name, e.g. "$randomInt(1,100)"
+ private static final Map<String, Generator> GENERATORS = new ConcurrentHashMap<>();
+ private static final Generator UNKNOWN = context -> null;
+
+ // Who is sending the request; NONE outside load tests
+ public static final class Context {
+  public static final Context NONE = new Context(0, 0);
+
+  private final int userIndex;
+  private final int iteration;
+
+  public Context(int userIndex, int iteration) {
+   this.userIndex = userIndex;
+   this.iteration = iteration;
+  }
+
+  public int getUserIndex() { return userIndex; }
+  public int getIteration() { return iteration; }
+ }
+
+ private interface Generator {
+  String generate(Context context);
+ }
+
+ private DynamicVariables() {
+ }
+
+ public static boolean isDynamic(String name) {
+  return name != null && name.startsWith(PREFIX) && generatorFor(name) != UNKNOWN;
+ }
+
+ // Null if name is not a built-in variable, so the caller can fall back to environment variables
+ public static String value(String name, Context context) {
+  if (name == null || !name.startsWith(PREFIX)) {
+   return null;
+  }
+  return generatorFor(name).generate(context != null ? context : Context.NONE);
+ }
+
+ // True if resolving text twice can give different results
+ public static boolean containsDynamic(String text) {
+  if (text == null || !text.contains("{{" + PREFIX)) {
+   return false;
+  }
+  for (String name : VariableTemplate.compile(text).getVariableNames()) {
+   if (isDynamic(name)) {
+    return true;
+   }
+  }
+  return false;
+ }
+
+ private static Generator generatorFor(String name) {
+  Generator generator = GENERATORS.get(name);
+  if (generator == null) {
+   generator = parse(name);
+   GENERATORS.putIfAbsent(name, generator);
+  }
+  return generator;
+ }
+
+ private static Generator parse(String name) {
+  String base = name;
+  String[] args = new String[0];
+  int open = name.indexOf('(');
+  if (open > 0 && name.endsWith(")")) {
+   base = name.substring(0, open);
+   String inner = name.substring(open + 1, name.length() - 1).trim();
+   args = inner.isEmpty() ? args : inner.split(",");
+  }
+
+  try {
+   switch (base.substring(PREFIX.length())) {
+    case "uuid":
+     return args.length == 0 ? context -> randomUuid() : UNKNOWN;
+    case "timestamp":
+     return args.length == 0 ? context -> Long.toString(System.currentTimeMillis()) : UNKNOWN;
+    case "isoTimestamp":
+     return args.length == 0 ? context -> Instant.now().toString() : UNKNOWN;
+    case "randomInt": {
+     if (args.length != 0 && args.length != 2) return UNKNOWN;
+     int min = args.length == 2 ? Integer.parseInt(args[0].trim()) : 0;
+     int max = args.length == 2 ? Integer.parseInt(args[1].trim()) : DEFAULT_RANDOM_INT_MAX;
+     if (max < min) return UNKNOWN;
+     return context -> Long.toString(ThreadLocalRandom.current().nextLong(min, (long) max + 1));
+    }
+    case "randomString": {
+     if (args.length > 1) return UNKNOWN;
+     int length = args.length == 1 ? Integer.parseInt(args[0].trim()) : DEFAULT_RANDOM_STRING_LENGTH;
+     if (length < 0) return UNKNOWN;
+     return context -> randomString(length);
+    }
+    case "userIndex":
+     return args.length == 0 ? context -> Integer.toString(context.getUserIndex()) : UNKNOWN;
+    case "iteration":
+     return args.length == 0 ? context -> Integer.toString(context.getIteration()) : UNKNOWN;
+    default:
+     return UNKNOWN;
+   }
+  } catch (NumberFormatException e) {
+   return UNKNOWN;
+  }
+ }
+
+ // UUID.randomUUID() draws from a shared SecureRandom; the per-thread generator is enough here
+ private static String randomUuid() {
+  ThreadLocalRandom random = ThreadLocalRandom.current();
+  long mostSig = (random.nextLong() & ~0xF000L) | 0x4000L;
+  long leastSig = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+  return new UUID(mostSig, leastSig).toString();
+ }
+
+ private static String randomString(int length) {
+  ThreadLocalRandom random = ThreadLocalRandom.current();
+  char[] chars = new char[length];
+  for (int i = 0; i < length; i++) {
+   chars[i] = ALPHANUMERIC[random.nextInt(ALPHANUMERIC.length)];
+  }
+  return new String(chars);
+ }
+}
@@ -16,10 +16,25 @@ public class FileManager {
  return Paths.get(getAppDataDirectory(), "collections.json").toString();
  }
 
+ // One directory per collection; replaced collections.json, which is only read to migrate old collections
+ public static String getCollectionsDirectory() {
+ return Paths.get(getAppDataDirectory(), "collections").toString();
+ }
+
  public static String getHistoryFile() {
  return Paths.get(getAppDataDirectory(), "history.json").toString();
  }
 
+ // Append-only journal that replaced history.json, which is only read to migrate old history
+ public static String getHistoryJournalFile() {
+ return Paths.get(getAppDataDirectory(), "history.jsonl").toString();
+ }
+
+ // Compressed response bodies referenced from history by content hash
+ public static String getResponseBodiesDirectory() {
+ return Paths.get(getAppDataDirectory(), "responses").toString();
+ }
+
  public static String getSessionsFile() {
  return Paths.get(getAppDataDirectory(), "sessions.json").toString();
  }
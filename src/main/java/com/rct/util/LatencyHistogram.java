@@ -0,0 +1,257 @@
+package com.rct.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, log-bucketed latency histogram in the style of HdrHistogram. Values are recorded
+ * in microseconds; each power-of-two range is split into enough linear sub-buckets to keep the
+ * configured number of significant digits, so memory is constant no matter how many samples
+ * are recorded. Recording is lock-free and percentile queries walk the buckets once.
+ */
+public class LatencyHistogram {
+ public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+ public static final long DEFAULT_HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+ private static final int MAX_DEFAULT_STRIPES = 8;
+
+ private final Layout layout;
+ private final Stripe[] stripes;
+ private final int stripeMask;
+
+ public LatencyHistogram() {
+  this(DEFAULT_HIGHEST_TRACKABLE_MICROS, DEFAULT_SIGNIFICANT_DIGITS);
+ }
+
+ public LatencyHistogram(long highestTrackableMicros, int significantDigits) {
+  this(highestTrackableMicros, significantDigits, defaultStripeCount());
+ }
+
+ // Recording threads are spread over stripes that are only merged when read, so concurrent
+ // writers rarely touch the same counters; stripeCount is rounded up to a power of two
+ public LatencyHistogram(long highestTrackableMicros, int significantDigits, int stripeCount) {
+  this.layout = new Layout(highestTrackableMicros, significantDigits);
+  int count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+  this.stripes = new Stripe[count];
+  for (int i = 0; i < count; i++) {
+   stripes[i] = new Stripe(layout.countsLength);
+  }
+  this.stripeMask = count - 1;
+ }
+
+ public static int defaultStripeCount() {
+  return Math.min(MAX_DEFAULT_STRIPES, Runtime.getRuntime().availableProcessors());
+ }
+
+ public void recordMicros(long micros) {
+  // Out-of-range values are clamped rather than dropped so counts stay complete
+  long value = Math.max(0, Math.min(micros, layout.highestTrackable));
+  stripeForCurrentThread().record(layout.indexOf(value), value);
+ }
+
+ public void recordNanos(long nanos) {
+  recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+ }
+
+ public void reset() {
+  for (Stripe stripe : stripes) {
+   stripe.reset();
+  }
+ }
+
+ public long getTotalCount() {
+  long count = 0;
+  for (Stripe stripe : stripes) {
+   count += stripe.totalCount.get();
+  }
+  return count;
+ }
+
+ public long getValueAtPercentile(double percentile) {
+  return snapshot().getValueAtPercentile(percentile);
+ }
+
+ // Consistent enough for reporting while recording continues; counts are copied bucket by bucket
+ public Snapshot snapshot() {
+  long[] copy = new long[layout.countsLength];
+  long count = 0;
+  long total = 0;
+  long min = Long.MAX_VALUE;
+  long max = 0;
+  for (Stripe stripe : stripes) {
+   for (int i = 0; i < copy.length; i++) {
+    long bucket = stripe.counts.get(i);
+    copy[i] += bucket;
+    count += bucket;
+   }
+   total += stripe.totalMicros.get();
+   min = Math.min(min, stripe.minMicros.get());
+   max = Math.max(max, stripe.maxMicros.get());
+  }
+  return new Snapshot(layout, copy, count, total, min, max);
+ }
+
+ private Stripe stripeForCurrentThread() {
+  if (stripeMask == 0) return stripes[0];
+  long id = Thread.currentThread().getId();
+  int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+  return stripes[(hash >>> 16) & stripeMask];
+ }
+
+ // One writer-local slice of the histogram
+ private static final class Stripe {
+  private final AtomicLongArray counts;
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalMicros = new AtomicLong();
+  private final AtomicLong minMicros = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  Stripe(int length) {
+   this.counts = new AtomicLongArray(length);
+  }
+
+  void record(int index, long value) {
+   counts.incrementAndGet(index);
+   totalCount.incrementAndGet();
+   totalMicros.addAndGet(value);
+   // Only pay for a CAS when the value actually moves an extreme
+   if (value < minMicros.get()) minMicros.accumulateAndGet(value, Math::min);
+   if (value > maxMicros.get()) maxMicros.accumulateAndGet(value, Math::max);
+  }
+
+  void reset() {
+   for (int i = 0; i < counts.length(); i++) {
+    counts.set(i, 0);
+   }
+   totalCount.set(0);
+   totalMicros.set(0);
+   minMicros.set(Long.MAX_VALUE);
+   maxMicros.set(0);
+  }
+ }
+
+ public static class Snapshot {
+  private final Layout layout;
+  private final long[] counts;
+  private final long totalCount;
+  private final long totalMicros;
+  private final long minMicros;
+  private final long maxMicros;
+
+  private Snapshot(Layout layout, long[] counts, long totalCount, long totalMicros, long minMicros, long maxMicros) {
+   this.layout = layout;
+   this.counts = counts;
+   this.totalCount = totalCount;
+   this.totalMicros = totalMicros;
+   this.minMicros = minMicros;
+   this.maxMicros = maxMicros;
+  }
+
+  public long getTotalCount() { return totalCount; }
+  public long getMinMicros() { return totalCount > 0 ? minMicros : 0; }
+  public long getMaxMicros() { return maxMicros; }
+
+  public double getMeanMicros() {
+   return totalCount > 0 ? (double) totalMicros / totalCount : 0;
+  }
+
+  // Highest value equivalent to the bucket holding the percentile, never lower than the true value
+  public long getValueAtPercentile(double percentile) {
+   if (totalCount == 0) return 0;
+
+   long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+   long running = 0;
+   for (int i = 0; i < counts.length; i++) {
+    running += counts[i];
+    if (running >= target) {
+     return Math.min(layout.highestEquivalentValue(i), maxMicros);
+    }
+   }
+   return maxMicros;
+  }
+
+  public Snapshot merge(Snapshot other) {
+   if (!layout.equals(other.layout)) {
+    throw new IllegalArgumentException("Cannot merge histograms with different range or precision");
+   }
+   long[] merged = counts.clone();
+   for (int i = 0; i < merged.length; i++) {
+    merged[i] += other.counts[i];
+   }
+   long min = Math.min(totalCount > 0 ? minMicros : Long.MAX_VALUE, other.totalCount > 0 ? other.minMicros : Long.MAX_VALUE);
+   return new Snapshot(layout, merged, totalCount + other.totalCount, totalMicros + other.totalMicros,
+           min, Math.max(maxMicros, other.maxMicros));
+  }
+ }
+
+ // Bucket geometry shared by a histogram and its snapshots
+ private static final class Layout {
+  private final long highestTrackable;
+  private final int significantDigits;
+  private final int subBucketHalfCountMagnitude;
+  private final int subBucketHalfCount;
+  private final long subBucketMask;
+  private final int leadingZeroCountBase;
+  private final int countsLength;
+
+  Layout(long highestTrackable, int significantDigits) {
+   if (significantDigits < 1 || significantDigits > 5) {
+    throw new IllegalArgumentException("significantDigits must be between 1 and 5");
+   }
+   if (highestTrackable < 2) {
+    throw new IllegalArgumentException("highestTrackable must be at least 2");
+   }
+   this.highestTrackable = highestTrackable;
+   this.significantDigits = significantDigits;
+
+   long largestSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+   int subBucketCountMagnitude = (int) Math.ceil(Math.log(largestSingleUnitResolution) / Math.log(2));
+   this.subBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+   int subBucketCount = 1 << (subBucketHalfCountMagnitude + 1);
+   this.subBucketHalfCount = subBucketCount / 2;
+   this.subBucketMask = subBucketCount - 1;
+   this.leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+   int bucketCount = 1;
+   long smallestUntrackable = subBucketCount;
+   while (smallestUntrackable <= highestTrackable) {
+    if (smallestUntrackable > Long.MAX_VALUE / 2) {
+     bucketCount++;
+     break;
+    }
+    smallestUntrackable <<= 1;
+    bucketCount++;
+   }
+   this.countsLength = (bucketCount + 1) * subBucketHalfCount;
+  }
+
+  int indexOf(long value) {
+   int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+   int subBucketIndex = (int) (value >>> bucketIndex);
+   return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+  }
+
+  long highestEquivalentValue(int index) {
+   int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+   int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+   if (bucketIndex < 0) {
+    subBucketIndex -= subBucketHalfCount;
+    bucketIndex = 0;
+   }
+   long lowest = (long) subBucketIndex << bucketIndex;
+   return lowest + (1L << bucketIndex) - 1;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+   if (!(o instanceof Layout)) return false;
+   Layout other = (Layout) o;
+   return highestTrackable == other.highestTrackable && significantDigits == other.significantDigits;
+  }
+
+  @Override
+  public int hashCode() {
+   return Long.hashCode(highestTrackable) * 31 + significantDigits;
+  }
+ }
+}
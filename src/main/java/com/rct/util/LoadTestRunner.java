@@ -1,15 +1,89 @@
 package com.rct.util;
 
+import com.rct.manager.EnvironmentSnapshot;
 import com.rct.model.RestResponse;
+import com.rct.service.HttpEngine;
+import com.rct.service.PooledHttpEngine;
+import com.rct.service.RequestScheduler;
 import com.rct.service.RestClientService;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 public class LoadTestRunner {
 
+ public enum ExecutionMode {
+  ASYNC("Non-blocking (async I/O)"),
+  PLATFORM_THREADS("Platform thread per user"),
+  VIRTUAL_THREADS("Virtual thread per user (Java 21+)");
+
+  private final String displayName;
+
+  ExecutionMode(String displayName) {
+   this.displayName = displayName;
+  }
+
+  public String getDisplayName() { return displayName; }
+
+  @Override
+  public String toString() { return displayName; }
+ }
+
+ public enum LoadModel {
+  CLOSED("Closed (concurrent users)"),
+  OPEN("Open (arrival rate)");
+
+  private final String displayName;
+
+  LoadModel(String displayName) {
+   this.displayName = displayName;
+  }
+
+  public String getDisplayName() { return displayName; }
+
+  @Override
+  public String toString() { return displayName; }
+ }
+
+ public enum RateProfile {
+  CONSTANT("Constant"),
+  RAMP("Linear ramp"),
+  STEP("Steps");
+
+  private final String displayName;
+
+  RateProfile(String displayName) {
+   this.displayName = displayName;
+  }
+
+  public String getDisplayName() { return displayName; }
+
+  @Override
+  public String toString() { return displayName; }
+ }
+
+ public enum ArrivalDistribution {
+  UNIFORM("Uniform"),
+  POISSON("Poisson");
+
+  private final String displayName;
+
+  ArrivalDistribution(String displayName) {
+   this.displayName = displayName;
+  }
+
+  public String getDisplayName() { return displayName; }
+
+  @Override
+  public String toString() { return displayName; }
+ }
+
  public static class LoadTestConfig {
   private String url;
   private String method;
@@ -19,6 +93,27 @@ public class LoadTestRunner {
   private int requestsPerUser;
   private int rampUpTimeSeconds;
   private int testDurationSeconds;
+  private ExecutionMode executionMode = ExecutionMode.ASYNC;
+
+  // Open-model settings, used when loadModel is OPEN
+  private LoadModel loadModel = LoadModel.CLOSED;
+  private double targetRps = 10;
+  private double startRps = 1;
+  private RateProfile rateProfile = RateProfile.CONSTANT;
+  private int stepCount = 5;
+  private ArrivalDistribution arrivalDistribution = ArrivalDistribution.UNIFORM;
+  private int maxInFlight = 1000;
+
+  // Optional per-host in-flight and rate caps applied on top of the load model
+  private RequestScheduler.Limits requestLimits;
+
+  // Variables for {{name}} placeholders, fixed for the whole test; null sends the text as entered
+  private EnvironmentSnapshot environment;
+
+  // Optional data file: each request takes the next row and binds its columns as {{column}}
+  private File dataFile;
+  private DataFeeder.Format dataFormat = DataFeeder.Format.CSV;
+  private DataFeeder.Strategy dataStrategy = DataFeeder.Strategy.SEQUENTIAL;
 
   public LoadTestConfig(String url, String method, Map<String, String> headers, String body,
                         int concurrentUsers, int requestsPerUser, int rampUpTimeSeconds, int testDurationSeconds) {
@@ -41,6 +136,65 @@ public class LoadTestRunner {
   public int getRequestsPerUser() { return requestsPerUser; }
   public int getRampUpTimeSeconds() { return rampUpTimeSeconds; }
   public int getTestDurationSeconds() { return testDurationSeconds; }
+  public ExecutionMode getExecutionMode() { return executionMode; }
+  public LoadModel getLoadModel() { return loadModel; }
+  public double getTargetRps() { return targetRps; }
+  public double getStartRps() { return startRps; }
+  public RateProfile getRateProfile() { return rateProfile; }
+  public int getStepCount() { return stepCount; }
+  public ArrivalDistribution getArrivalDistribution() { return arrivalDistribution; }
+  public int getMaxInFlight() { return maxInFlight; }
+  public RequestScheduler.Limits getRequestLimits() { return requestLimits; }
+  public EnvironmentSnapshot getEnvironment() { return environment; }
+  public File getDataFile() { return dataFile; }
+  public DataFeeder.Format getDataFormat() { return dataFormat; }
+  public DataFeeder.Strategy getDataStrategy() { return dataStrategy; }
+
+  public void setExecutionMode(ExecutionMode executionMode) { this.executionMode = executionMode; }
+  public void setLoadModel(LoadModel loadModel) { this.loadModel = loadModel; }
+  public void setTargetRps(double targetRps) { this.targetRps = targetRps; }
+  public void setStartRps(double startRps) { this.startRps = startRps; }
+  public void setRateProfile(RateProfile rateProfile) { this.rateProfile = rateProfile; }
+  public void setStepCount(int stepCount) { this.stepCount = Math.max(1, stepCount); }
+  public void setArrivalDistribution(ArrivalDistribution arrivalDistribution) { this.arrivalDistribution = arrivalDistribution; }
+  public void setMaxInFlight(int maxInFlight) { this.maxInFlight = Math.max(1, maxInFlight); }
+  public void setRequestLimits(RequestScheduler.Limits requestLimits) { this.requestLimits = requestLimits; }
+  public void setEnvironment(EnvironmentSnapshot environment) { this.environment = environment; }
+
+  // A sequential feed ends the test when it runs out of rows; null dataFile turns feeding off
+  public void setDataFeed(File dataFile, DataFeeder.Format dataFormat, DataFeeder.Strategy dataStrategy) {
+   this.dataFile = dataFile;
+   this.dataFormat = dataFormat;
+   this.dataStrategy = dataStrategy;
+  }
+
+  // Connections/threads the test may need at once
+  public int getMaxConcurrency() {
+   return loadModel == LoadModel.OPEN ? maxInFlight : concurrentUsers;
+  }
+
+  // Requests per second the open model should issue at the given point of the test
+  public double getArrivalRate(double elapsedSeconds) {
+   if (rateProfile == RateProfile.CONSTANT || rampUpTimeSeconds <= 0 || elapsedSeconds >= rampUpTimeSeconds) {
+    return targetRps;
+   }
+   double progress = elapsedSeconds / rampUpTimeSeconds;
+   if (rateProfile == RateProfile.STEP) {
+    progress = (Math.floor(progress * stepCount) + 1) / stepCount;
+   }
+   return startRps + (targetRps - startRps) * progress;
+  }
+
+  public int getExpectedRequestCount() {
+   if (loadModel == LoadModel.CLOSED) {
+    return concurrentUsers * requestsPerUser;
+   }
+   double total = 0;
+   for (int slice = 0; slice < testDurationSeconds * 10; slice++) {
+    total += getArrivalRate(slice / 10.0) * 0.1;
+   }
+   return (int) Math.round(total);
+  }
  }
 
  public static class LoadTestResult {
@@ -60,120 +214,439 @@ public class LoadTestRunner {
  }
 
  public static LoadTestResult runLoadTest(LoadTestConfig config, LoadTestProgressCallback callback) {
-  PerformanceMetrics metrics = new PerformanceMetrics();
-  ExecutorService executorService = null;
+  return runLoadTest(config, callback, new PerformanceMetrics());
+ }
+
+ // Callers that pass their own metrics can read them, including the per-second time series, while the test runs
+ public static LoadTestResult runLoadTest(LoadTestConfig config, LoadTestProgressCallback callback,
+                                          PerformanceMetrics metrics) {
+  DataFeeder feeder;
+  try {
+   feeder = config.getDataFile() == null ? null :
+           new DataFeeder(config.getDataFile(), config.getDataFormat(), config.getDataStrategy());
+  } catch (IOException e) {
+   return new LoadTestResult(metrics, false, "Cannot read data file: " + e.getMessage());
+  }
+
+  int concurrency = config.getMaxConcurrency();
+  // One pool per test, sized so every simulated user (or in-flight arrival) can hold a keep-alive connection
+  HttpEngine httpEngine = new PooledHttpEngine(concurrency, concurrency,
+          PooledHttpEngine.DEFAULT_KEEP_ALIVE_MS, PooledHttpEngine.DEFAULT_IDLE_EVICTION_MS);
+  // Drives ramp-up and the once-a-second metrics window; in async mode requests are in flight
+  // on the engine without a thread per user
+  ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  ExecutorService userExecutor = config.getExecutionMode() == ExecutionMode.ASYNC ? null :
+          ThreadPools.newExecutor(config.getExecutionMode() == ExecutionMode.VIRTUAL_THREADS, concurrency);
+  // Variables are resolved by the run itself, per request when the test uses {{$...}} generators
+  RestClientService service = new RestClientService((EnvironmentSnapshot) null, httpEngine);
+  RequestScheduler requestScheduler = config.getRequestLimits() == null || config.getRequestLimits().isUnlimited() ? null :
+          new RequestScheduler(service, config.getRequestLimits());
+  LoadTestRun run = new LoadTestRun(config, service, requestScheduler, metrics, callback, userExecutor, feeder);
 
   try {
    metrics.startTest();
-   executorService = Executors.newFixedThreadPool(config.getConcurrentUsers());
+   scheduler.scheduleAtFixedRate(() -> metrics.sampleWindow(run.inFlight.get()), 1, 1, TimeUnit.SECONDS);
+
+   boolean completed = config.getLoadModel() == LoadModel.OPEN ? run.runArrivals() : run.runUsers(scheduler);
+   run.running = false;
 
-   AtomicInteger completedUsers = new AtomicInteger(0);
-   CountDownLatch latch = new CountDownLatch(config.getConcurrentUsers());
+   metrics.sampleWindow(run.inFlight.get());
+   metrics.endTest();
+
+   if (callback != null) {
+    callback.onTestCompleted(metrics);
+   }
+
+   if (feeder != null && feeder.getFailure() != null) {
+    return new LoadTestResult(metrics, false, "Data file failed: " + feeder.getFailure().getMessage());
+   }
+   return new LoadTestResult(metrics, completed, completed ? null : "Test timed out");
+
+  } catch (InterruptedException e) {
+   // Interrupting the calling thread is how a test is stopped early
+   run.running = false;
+   metrics.sampleWindow(run.inFlight.get());
+   metrics.endTest();
+   if (callback != null) {
+    callback.onTestCompleted(metrics);
+   }
+   return new LoadTestResult(metrics, false, "Test stopped");
 
+  } catch (Exception e) {
+   run.running = false;
+   metrics.endTest();
+   return new LoadTestResult(metrics, false, "Test failed: " + e.getMessage());
+
+  } finally {
+   scheduler.shutdownNow();
+   if (userExecutor != null) {
+    userExecutor.shutdownNow();
+   }
+   if (requestScheduler != null) {
+    requestScheduler.shutdown();
+   }
+   if (feeder != null) {
+    feeder.close();
+   }
+   httpEngine.shutdown();
+  }
+ }
+
+ private static class LoadTestRun {
+  // Arrivals dispatched later than this after their scheduled time are counted as late
+  private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final LoadTestConfig config;
+  private final RestClientService service;
+  private final RequestScheduler requestScheduler;
+  private final PerformanceMetrics metrics;
+  private final LoadTestProgressCallback callback;
+  private final ExecutorService userExecutor;
+  private final AtomicInteger completedUsers = new AtomicInteger(0);
+  private final CountDownLatch usersLatch;
+  // Requests sent and not yet completed, in either load model
+  private final AtomicInteger inFlight = new AtomicInteger(0);
+  private volatile boolean running = true;
+
+  private final EnvironmentSnapshot environment;
+  private final DataFeeder feeder;
+  // Set when a sequential feed runs out: no new requests start, those in flight are still recorded
+  private volatile boolean feedExhausted;
+  // Without dynamic variables or a data feed the request is resolved once and every send reuses it
+  private final boolean dynamic;
+  private final String url;
+  private final Map<String, String> headers;
+  private final String body;
+
+  LoadTestRun(LoadTestConfig config, RestClientService service, RequestScheduler requestScheduler,
+              PerformanceMetrics metrics, LoadTestProgressCallback callback, ExecutorService userExecutor,
+              DataFeeder feeder) {
+   this.config = config;
+   this.service = service;
+   this.requestScheduler = requestScheduler;
+   this.metrics = metrics;
+   this.callback = callback;
+   this.userExecutor = userExecutor;
+   this.usersLatch = new CountDownLatch(config.getConcurrentUsers());
+
+   this.environment = config.getEnvironment() != null ? config.getEnvironment() : EnvironmentSnapshot.EMPTY;
+   this.feeder = feeder;
+   boolean dynamicHeaders = false;
+   if (config.getHeaders() != null) {
+    for (Map.Entry<String, String> header : config.getHeaders().entrySet()) {
+     dynamicHeaders |= DynamicVariables.containsDynamic(header.getKey()) ||
+             DynamicVariables.containsDynamic(header.getValue());
+    }
+   }
+   this.dynamic = feeder != null || dynamicHeaders || DynamicVariables.containsDynamic(config.getUrl()) ||
+           DynamicVariables.containsDynamic(config.getBody());
+   DynamicVariables.Context context = DynamicVariables.Context.NONE;
+   this.url = dynamic ? config.getUrl() : environment.resolveVariables(config.getUrl(), context);
+   this.headers = dynamic ? config.getHeaders() : resolveHeaders(context, null);
+   this.body = dynamic ? config.getBody() : environment.resolveVariables(config.getBody(), context);
+  }
+
+  // Closed model: a fixed population of users, each sending its next request when the previous one completes
+  boolean runUsers(ScheduledExecutorService scheduler) throws InterruptedException {
    // Calculate ramp-up delay per user
    long rampUpDelayMs = config.getRampUpTimeSeconds() > 0 ?
            (config.getRampUpTimeSeconds() * 1000L) / config.getConcurrentUsers() : 0;
 
-   // Submit user tasks with ramp-up delay
+   // Start each user with ramp-up delay
+   long testStart = System.nanoTime();
    for (int i = 0; i < config.getConcurrentUsers(); i++) {
     final int userIndex = i;
-    final long delay = i * rampUpDelayMs;
+    final long intendedStart = testStart + TimeUnit.MILLISECONDS.toNanos(i * rampUpDelayMs);
+    scheduler.schedule(() -> startUser(userIndex, intendedStart), i * rampUpDelayMs, TimeUnit.MILLISECONDS);
+   }
 
-    executorService.submit(() -> {
-     try {
-      if (delay > 0) {
-       Thread.sleep(delay);
-      }
+   // Wait for test completion or timeout
+   return usersLatch.await(config.getTestDurationSeconds() + config.getRampUpTimeSeconds() + 30,
+           TimeUnit.SECONDS);
+  }
 
-      executeUserRequests(config, metrics, userIndex, callback);
-      completedUsers.incrementAndGet();
+  // Open model: requests arrive on a schedule regardless of how quickly earlier ones complete
+  boolean runArrivals() throws InterruptedException {
+   int expected = config.getExpectedRequestCount();
+   long testStart = System.nanoTime();
+   long testEnd = testStart + TimeUnit.SECONDS.toNanos(config.getTestDurationSeconds());
+   long intended = testStart;
+   int sequence = 0;
+
+   while (running && !feedExhausted && intended < testEnd) {
+    long wait;
+    while ((wait = intended - System.nanoTime()) > 0) {
+     LockSupport.parkNanos(wait);
+     if (Thread.interrupted()) {
+      throw new InterruptedException();
+     }
+    }
 
-      if (callback != null) {
-       callback.onUserCompleted(userIndex, completedUsers.get(), config.getConcurrentUsers());
-      }
+    metrics.recordScheduled(System.nanoTime() - intended > LATE_THRESHOLD_NANOS);
+    if (inFlight.get() >= config.getMaxInFlight()) {
+     metrics.recordDropped();
+    } else {
+     dispatchArrival(sequence, expected, intended);
+    }
+
+    sequence++;
+    intended += nextInterArrivalNanos((intended - testStart) / 1e9);
+   }
+
+   // Let requests already in flight finish
+   long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+   while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+    Thread.sleep(50);
+   }
+   return inFlight.get() == 0;
+  }
 
-     } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-     } finally {
-      latch.countDown();
+  private long nextInterArrivalNanos(double elapsedSeconds) {
+   double rate = config.getArrivalRate(elapsedSeconds);
+   if (rate <= 0) {
+    // Nothing to send yet, look again shortly
+    return TimeUnit.MILLISECONDS.toNanos(10);
+   }
+   double meanGapNanos = 1e9 / rate;
+   if (config.getArrivalDistribution() == ArrivalDistribution.POISSON) {
+    return (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+   }
+   return (long) meanGapNanos;
+  }
+
+  private void dispatchArrival(int sequence, int expected, long intendedStart) {
+   inFlight.incrementAndGet();
+   Runnable send;
+   if (userExecutor == null) {
+    send = () -> {
+     Map<String, String> row = nextRow();
+     if (row == null) {
+      inFlight.decrementAndGet();
+      return;
+     }
+     long startTime = System.nanoTime();
+     CompletableFuture<RestResponse> pending;
+     try {
+      pending = sendAsync(sequence, sequence, row);
+     } catch (Exception e) {
+      pending = new CompletableFuture<>();
+      pending.completeExceptionally(e);
+     }
+     pending.whenComplete((response, throwable) -> {
+      recordResult(sequence, sequence + 1, expected, intendedStart, startTime, response, throwable);
+      inFlight.decrementAndGet();
+     });
+    };
+   } else {
+    send = () -> {
+     Map<String, String> row = nextRow();
+     if (row == null) {
+      inFlight.decrementAndGet();
+      return;
      }
-    });
+     long startTime = System.nanoTime();
+     RestResponse response = null;
+     Throwable error = null;
+     try {
+      response = sendBlocking(sequence, sequence, row);
+     } catch (Exception e) {
+      error = e;
+     }
+     recordResult(sequence, sequence + 1, expected, intendedStart, startTime, response, error);
+     inFlight.decrementAndGet();
+    };
    }
 
-   // Wait for test completion or timeout
-   boolean completed = latch.await(config.getTestDurationSeconds() + config.getRampUpTimeSeconds() + 30,
-           TimeUnit.SECONDS);
+   // Request preparation runs off the generator thread so it can keep to the schedule
+   try {
+    (userExecutor != null ? userExecutor : ForkJoinPool.commonPool()).execute(send);
+   } catch (RejectedExecutionException e) {
+    inFlight.decrementAndGet();
+    metrics.recordDropped();
+   }
+  }
 
-   metrics.endTest();
+  // The data row for the next request (empty without a feed), or null once a sequential feed has
+  // run out, which ends the test
+  private Map<String, String> nextRow() {
+   if (feeder == null) {
+    return Collections.emptyMap();
+   }
+   Map<String, String> row = feeder.next();
+   if (row == null) {
+    feedExhausted = true;
+   }
+   return row;
+  }
 
-   if (callback != null) {
-    callback.onTestCompleted(metrics);
+  private RestResponse sendBlocking(int userIndex, int iteration, Map<String, String> row) {
+   if (requestScheduler != null) {
+    return sendAsync(userIndex, iteration, row).join();
    }
+   DynamicVariables.Context context = dynamic ? new DynamicVariables.Context(userIndex, iteration) : null;
+   return service.sendRequest(
+           config.getMethod(),
+           resolve(url, context, row),
+           context != null ? resolveHeaders(context, row) : headers,
+           new HashMap<>(),
+           resolve(body, context, row)
+   );
+  }
 
-   return new LoadTestResult(metrics, completed, completed ? null : "Test timed out");
+  private CompletableFuture<RestResponse> sendAsync(int userIndex, int iteration, Map<String, String> row) {
+   DynamicVariables.Context context = dynamic ? new DynamicVariables.Context(userIndex, iteration) : null;
+   if (requestScheduler != null) {
+    return requestScheduler.submit(
+            config.getMethod(),
+            resolve(url, context, row),
+            context != null ? resolveHeaders(context, row) : headers,
+            new HashMap<>(),
+            resolve(body, context, row)
+    );
+   }
+   return service.sendRequestAsync(
+           config.getMethod(),
+           resolve(url, context, row),
+           context != null ? resolveHeaders(context, row) : headers,
+           new HashMap<>(),
+           resolve(body, context, row)
+   );
+  }
 
-  } catch (Exception e) {
-   metrics.endTest();
-   return new LoadTestResult(metrics, false, "Test failed: " + e.getMessage());
+  // A null context means the text was already resolved when the run started
+  private String resolve(String text, DynamicVariables.Context context, Map<String, String> row) {
+   return context != null ? environment.resolveVariables(text, context, row) : text;
+  }
 
-  } finally {
-   if (executorService != null) {
-    executorService.shutdown();
-    try {
-     if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-      executorService.shutdownNow();
+  private Map<String, String> resolveHeaders(DynamicVariables.Context context, Map<String, String> row) {
+   if (config.getHeaders() == null) {
+    return null;
+   }
+   Map<String, String> resolved = new HashMap<>(config.getHeaders().size() * 2);
+   for (Map.Entry<String, String> header : config.getHeaders().entrySet()) {
+    resolved.put(environment.resolveVariables(header.getKey(), context, row),
+            environment.resolveVariables(header.getValue(), context, row));
+   }
+   return resolved;
+  }
+
+  // A user intends to send its first request at its ramp-up slot, and each later one as soon as the previous completes
+  void startUser(int userIndex, long intendedStart) {
+   if (userExecutor == null) {
+    sendNext(userIndex, 0, intendedStart);
+    return;
+   }
+
+   try {
+    userExecutor.execute(() -> executeUserRequests(userIndex, intendedStart));
+   } catch (RejectedExecutionException e) {
+    userCompleted(userIndex);
+   }
+  }
+
+  // Thread-per-user mode: the user's thread blocks on each request in turn
+  private void executeUserRequests(int userIndex, long intendedStart) {
+   try {
+    for (int i = 0; i < config.getRequestsPerUser() && running; i++) {
+     Map<String, String> row = nextRow();
+     if (row == null) break;
+
+     long startTime = System.nanoTime();
+     RestResponse response = null;
+     Throwable error = null;
+
+     inFlight.incrementAndGet();
+     try {
+      response = sendBlocking(userIndex, i, row);
+     } catch (Exception e) {
+      error = e;
      }
-    } catch (InterruptedException e) {
-     executorService.shutdownNow();
-     Thread.currentThread().interrupt();
+
+     recordResult(userIndex, i + 1, config.getRequestsPerUser(), intendedStart, startTime, response, error);
+     inFlight.decrementAndGet();
+     intendedStart = System.nanoTime();
     }
+   } finally {
+    userCompleted(userIndex);
    }
   }
- }
 
- private static void executeUserRequests(LoadTestConfig config, PerformanceMetrics metrics,
-                                         int userIndex, LoadTestProgressCallback callback) {
-  RestClientService service = new RestClientService();
+  // Async mode: issues request number `iteration` for a user; its completion chains the user's next request
+  void sendNext(int userIndex, int iteration, long intendedStart) {
+   Map<String, String> row = running && iteration < config.getRequestsPerUser() ? nextRow() : null;
+   if (row == null) {
+    userCompleted(userIndex);
+    return;
+   }
 
-  for (int i = 0; i < config.getRequestsPerUser(); i++) {
    long startTime = System.nanoTime();
+   CompletableFuture<RestResponse> pending;
+   inFlight.incrementAndGet();
+   try {
+    pending = sendAsync(userIndex, iteration, row);
+   } catch (Exception e) {
+    pending = new CompletableFuture<>();
+    pending.completeExceptionally(e);
+   }
+
+   // Already-failed futures would otherwise recurse through every remaining iteration on this stack
+   Executor continuation = pending.isDone() ? ForkJoinPool.commonPool() : Runnable::run;
+   pending.whenCompleteAsync((response, throwable) -> {
+    recordResult(userIndex, iteration + 1, config.getRequestsPerUser(), intendedStart, startTime, response, throwable);
+    inFlight.decrementAndGet();
+    sendNext(userIndex, iteration + 1, System.nanoTime());
+   }, continuation);
+  }
+
+  private void recordResult(int userIndex, int completedRequests, int totalRequests, long intendedStart,
+                            long startTime, RestResponse response, Throwable throwable) {
    boolean success = false;
    int statusCode = 0;
    String error = null;
 
-   try {
-    RestResponse response = service.sendRequest(
-            config.getMethod(),
-            config.getUrl(),
-            config.getHeaders(),
-            new HashMap<>(),
-            config.getBody()
-    );
-
+   if (throwable == null) {
     statusCode = response.getStatusCode();
     success = statusCode >= 200 && statusCode < 300;
-
-   } catch (Exception e) {
-    error = e.getMessage();
-    statusCode = 0;
+   } else {
+    error = throwable.getMessage();
    }
 
    long endTime = System.nanoTime();
-   long responseTime = (endTime - startTime) / 1_000_000; // Convert to milliseconds
+   long responseNanos = endTime - startTime;
+   long correctedResponseNanos = endTime - Math.min(intendedStart, startTime);
+   long responseTime = responseNanos / 1_000_000; // Convert to milliseconds
 
-   metrics.recordRequest(responseTime, statusCode, success, error);
+   if (running) {
+    metrics.recordRequestNanos(responseNanos, correctedResponseNanos, statusCode, success, error);
 
-   if (callback != null) {
-    callback.onRequestCompleted(userIndex, i + 1, config.getRequestsPerUser(),
-            responseTime, statusCode, success);
+    if (callback != null) {
+     callback.onRequestCompleted(userIndex, completedRequests, totalRequests,
+             responseTime, statusCode, success);
+    }
+   }
+  }
+
+  private void userCompleted(int userIndex) {
+   int completed = completedUsers.incrementAndGet();
+   if (callback != null && running) {
+    callback.onUserCompleted(userIndex, completed, config.getConcurrentUsers());
    }
+   usersLatch.countDown();
   }
  }
 
+ // In open-model tests there are no users: userIndex is the arrival's sequence number and
+ // the request counts are relative to the whole test. Per-request events arrive on the worker
+ // threads at full request rate; UIs should sample PerformanceMetrics instead of handling them.
  public interface LoadTestProgressCallback {
-  void onUserCompleted(int userIndex, int completedUsers, int totalUsers);
-  void onRequestCompleted(int userIndex, int completedRequests, int totalRequests,
-                          long responseTime, int statusCode, boolean success);
+  default void onUserCompleted(int userIndex, int completedUsers, int totalUsers) {
+  }
+
+  default void onRequestCompleted(int userIndex, int completedRequests, int totalRequests,
+                                  long responseTime, int statusCode, boolean success) {
+  }
+
   void onTestCompleted(PerformanceMetrics metrics);
  }
 }
@@ -1,46 +1,178 @@
 package com.rct.util;
 
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * log() may be called from any thread and never blocks: it claims a slot in a fixed-size ring buffer
+ * with one compare-and-set and returns. When the buffer is full the message is dropped and counted,
+ * and the drop count is logged once there is room again.
+ *
+ * A single drainer thread takes what has accumulated, formats it and writes it as one batch to stdout,
+ * to app.log (rewritten each run) and, with one invokeLater per batch, to the console window. The last
+ * HISTORY_LINES lines are kept for the console window and for saving; older lines are discarded.
+ */
 public class LogManager {
- private static LogManager instance;
- private List<String> logs;
+ private static final int BUFFER_SIZE = 16384; // power of two
+ private static final int HISTORY_LINES = 10000;
+ private static final long DRAIN_INTERVAL_NANOS = 50_000_000L;
+ private static final LogManager instance = new LogManager();
+
+ // Multi-producer, single-consumer ring: producers claim slot tail++ while tail - head < BUFFER_SIZE and
+ // then fill it; the drainer takes filled slots from head on and clears them
+ private final AtomicReferenceArray<Entry> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+ private final AtomicLong tail = new AtomicLong();
+ private volatile long head;
+ private final AtomicLong dropped = new AtomicLong();
+
+ // Guarded by itself; written by the drainer, read by the console window
+ private final ArrayDeque<String> logs = new ArrayDeque<>();
+ private volatile JTextArea consoleArea;
  private JDialog consoleWindow;
- private JTextArea consoleArea;
- private DateTimeFormatter formatter;
+ private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+ private BufferedWriter logWriter;
+
+ private static final class Entry {
+ final long time;
+ final String message;
+
+ Entry(long time, String message) {
+ this.time = time;
+ this.message = message;
+ }
+ }
 
  private LogManager() {
- logs = new ArrayList<>();
- formatter = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+ try {
+ FileManager.ensureAppDataDirectory();
+ logWriter = Files.newBufferedWriter(Paths.get(FileManager.getLogsFile()), StandardCharsets.UTF_8);
+ } catch (IOException e) {
+ System.err.println("Cannot write " + FileManager.getLogsFile() + ": " + e.getMessage());
+ }
+ Thread drainer = new Thread(this::drainLoop, "log-drainer");
+ drainer.setDaemon(true);
+ drainer.start();
+ // Write what is still buffered when the application exits
+ Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "log-flush"));
  }
 
  public static LogManager getInstance() {
- if (instance == null) {
- instance = new LogManager();
- }
  return instance;
  }
 
  public void log(String message) {
- String timestamp = LocalDateTime.now().format(formatter);
- String logEntry = "[" + timestamp + "] " + message;
- logs.add(logEntry);
+ Entry entry = new Entry(System.currentTimeMillis(), message);
+ while (true) {
+ long slot = tail.get();
+ if (slot - head >= BUFFER_SIZE) {
+ dropped.incrementAndGet();
+ return;
+ }
+ if (tail.compareAndSet(slot, slot + 1)) {
+ buffer.set((int) (slot & (BUFFER_SIZE - 1)), entry);
+ return;
+ }
+ }
+ }
 
- System.out.println(logEntry);
+ // Messages lost because the buffer was full
+ public long getDroppedCount() {
+ return dropped.get();
+ }
 
- if (consoleArea != null) {
- SwingUtilities.invokeLater(() -> {
- consoleArea.append(logEntry + "\n");
- consoleArea.setCaretPosition(consoleArea.getDocument().getLength());
- });
+ private void drainLoop() {
+ while (true) {
+ if (!drain()) {
+ LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+ }
+ }
+ }
+
+ // Writes everything buffered as one batch; false if there was nothing to write
+ private synchronized boolean drain() {
+ List<String> lines = new ArrayList<>();
+ long reportedDrops = dropped.get();
+ long next = head;
+ // At most one buffer's worth, so a steady stream of messages still gets written in batches
+ while (lines.size() < BUFFER_SIZE) {
+ int index = (int) (next & (BUFFER_SIZE - 1));
+ Entry entry = buffer.get(index);
+ if (entry == null) break; // empty, or claimed and not filled yet
+ buffer.set(index, null);
+ head = ++next;
+ lines.add("[" + formatter.format(Instant.ofEpochMilli(entry.time)) + "] " + entry.message);
+ }
+ if (reportedDrops > 0) {
+ dropped.addAndGet(-reportedDrops);
+ lines.add("[" + formatter.format(Instant.now()) + "] " + reportedDrops + " log messages dropped, logging faster than they could be written");
+ }
+ if (lines.isEmpty()) return false;
+
+ StringBuilder batch = new StringBuilder(lines.size() * 80);
+ for (String line : lines) {
+ batch.append(line).append(System.lineSeparator());
+ }
+ System.out.print(batch);
+ if (logWriter != null) {
+ try {
+ logWriter.write(batch.toString());
+ logWriter.flush();
+ } catch (IOException e) {
+ logWriter = null;
+ }
+ }
+
+ synchronized (logs) {
+ for (String line : lines) {
+ logs.addLast(line);
+ }
+ while (logs.size() > HISTORY_LINES) {
+ logs.removeFirst();
+ }
+ }
+
+ JTextArea area = consoleArea;
+ if (area != null) {
+ String text = batch.toString().replace(System.lineSeparator(), "\n");
+ SwingUtilities.invokeLater(() -> appendToConsole(area, text));
+ }
+ return true;
+ }
+
+ private void appendToConsole(JTextArea area, String text) {
+ area.append(text);
+ int excess = area.getLineCount() - 1 - HISTORY_LINES;
+ if (excess > 0) {
+ try {
+ area.replaceRange("", 0, area.getLineStartOffset(excess));
+ } catch (BadLocationException e) {
+ area.setText("");
+ }
+ }
+ area.setCaretPosition(area.getDocument().getLength());
+ }
+
+ private String historyText() {
+ synchronized (logs) {
+ return String.join("\n", logs);
  }
  }
 
@@ -59,7 +191,7 @@ public class LogManager {
  consoleWindow.setSize(800, 600);
  consoleWindow.setLocationRelativeTo(parent);
 
- consoleArea = new JTextArea();
+ JTextArea consoleArea = new JTextArea();
  consoleArea.setEditable(false);
  consoleArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
  consoleArea.setBackground(new Color(30, 30, 30));
@@ -67,10 +199,11 @@ public class LogManager {
  consoleArea.setCaretColor(Color.WHITE);
  consoleArea.setTabSize(2);
 
- for (String log : logs) {
- consoleArea.append(log + "\n");
- }
+ String history = historyText();
+ consoleArea.append(history.isEmpty() ? "" : history + "\n");
  consoleArea.setCaretPosition(consoleArea.getDocument().getLength());
+ // From here on the drainer appends new lines
+ this.consoleArea = consoleArea;
 
  JScrollPane scrollPane = new JScrollPane(consoleArea);
  scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
@@ -81,7 +214,9 @@ public class LogManager {
  JButton closeBtn = new JButton("❌Close");
 
  clearBtn.addActionListener(e -> {
+ synchronized (logs) {
  logs.clear();
+ }
  consoleArea.setText("");
  log("Console cleared");
  });
@@ -93,7 +228,7 @@ public class LogManager {
  java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
  File logFile = new File(logsDir, "rest-client-logs_" + timestamp + ".txt");
 
- java.nio.file.Files.write(logFile.toPath(), String.join("\n", logs).getBytes());
+ java.nio.file.Files.write(logFile.toPath(), historyText().getBytes());
  JOptionPane.showMessageDialog(consoleWindow,
  "Logs saved to: " + logFile.getAbsolutePath());
  } catch (Exception ex) {
@@ -2,24 +2,65 @@ package com.rct.util;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PerformanceMetrics {
- private final AtomicInteger totalRequests = new AtomicInteger(0);
- private final AtomicInteger successfulRequests = new AtomicInteger(0);
- private final AtomicInteger failedRequests = new AtomicInteger(0);
- private final AtomicLong totalResponseTime = new AtomicLong(0);
- private final AtomicLong minResponseTime = new AtomicLong(Long.MAX_VALUE);
- private final AtomicLong maxResponseTime = new AtomicLong(0);
+ // Recording runs on every worker thread, so counters are LongAdders and the histograms are
+ // striped; all of them are only summed when read
+ private final LongAdder totalRequests = new LongAdder();
+ private final LongAdder successfulRequests = new LongAdder();
+ private final LongAdder failedRequests = new LongAdder();
 
- private final List<Long> responseTimes = Collections.synchronizedList(new ArrayList<>());
- private final Map<Integer, AtomicInteger> statusCodeCounts = new ConcurrentHashMap<>();
- private final Map<String, AtomicInteger> errorCounts = new ConcurrentHashMap<>();
+ // Response times are kept in constant-size histograms at microsecond resolution
+ private final LatencyHistogram responseTimes;
+
+ // Latency measured from the intended send time, so stalls that delay sending are not omitted
+ private final LatencyHistogram correctedResponseTimes;
+
+ // Open-model arrival accounting
+ private final LongAdder scheduledRequests = new LongAdder();
+ private final LongAdder droppedRequests = new LongAdder();
+ private final LongAdder lateDispatches = new LongAdder();
+
+ // Indexed by status code; 0 is used for transport errors, anything outside the range is counted separately
+ private static final int STATUS_CODE_SLOTS = 600;
+ private final LongAdder[] statusCodeCounts = new LongAdder[STATUS_CODE_SLOTS];
+ private final Map<Integer, LongAdder> otherStatusCodeCounts = new ConcurrentHashMap<>();
+ private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+ // Rolling per-second view: requests are recorded into the current window, which
+ // sampleWindow() summarises into a bounded ring of history once a second
+ public static final int DEFAULT_WINDOW_HISTORY_SECONDS = 3600;
+ private static final int WINDOW_SIGNIFICANT_DIGITS = 2;
+ private volatile Window currentWindow = new Window();
+ private Window spareWindow = new Window();
+ private final WindowSample[] windowHistory;
+ private int windowHistoryStart;
+ private int windowHistorySize;
+ private final Object windowLock = new Object();
 
  private long testStartTime;
  private long testEndTime;
 
+ public PerformanceMetrics() {
+ this(LatencyHistogram.DEFAULT_SIGNIFICANT_DIGITS);
+ }
+
+ // significantDigits trades memory for precision: 3 keeps every percentile within 0.1%
+ public PerformanceMetrics(int significantDigits) {
+ this(significantDigits, DEFAULT_WINDOW_HISTORY_SECONDS);
+ }
+
+ public PerformanceMetrics(int significantDigits, int windowHistorySeconds) {
+ windowHistory = new WindowSample[Math.max(1, windowHistorySeconds)];
+ responseTimes = new LatencyHistogram(LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_MICROS, significantDigits);
+ correctedResponseTimes = new LatencyHistogram(LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_MICROS, significantDigits);
+ for (int i = 0; i < STATUS_CODE_SLOTS; i++) {
+ statusCodeCounts[i] = new LongAdder();
+ }
+ }
+
  public void startTest() {
  testStartTime = System.currentTimeMillis();
  reset();
@@ -30,59 +71,153 @@ public class PerformanceMetrics {
  }
 
  public void recordRequest(long responseTime, int statusCode, boolean success, String error) {
- totalRequests.incrementAndGet();
- totalResponseTime.addAndGet(responseTime);
- responseTimes.add(responseTime);
+ recordRequest(responseTime, responseTime, statusCode, success, error);
+ }
+
+ // responseTime is the service time from the actual send; correctedResponseTime runs from the
+ // time the schedule intended the request to be sent
+ public void recordRequest(long responseTime, long correctedResponseTime, int statusCode, boolean success, String error) {
+ recordRequestNanos(TimeUnit.MILLISECONDS.toNanos(responseTime), TimeUnit.MILLISECONDS.toNanos(correctedResponseTime),
+ statusCode, success, error);
+ }
 
- // Update min/max response times
- minResponseTime.updateAndGet(current -> Math.min(current, responseTime));
- maxResponseTime.updateAndGet(current -> Math.max(current, responseTime));
+ // Preferred by the load runner so sub-millisecond latencies keep their precision
+ public void recordRequestNanos(long responseNanos, long correctedResponseNanos, int statusCode, boolean success, String error) {
+ totalRequests.increment();
+ responseTimes.recordNanos(responseNanos);
+ correctedResponseTimes.recordNanos(Math.max(responseNanos, correctedResponseNanos));
+ currentWindow.record(responseNanos, success);
 
  // Count status codes
- statusCodeCounts.computeIfAbsent(statusCode, k -> new AtomicInteger(0)).incrementAndGet();
+ if (statusCode >= 0 && statusCode < STATUS_CODE_SLOTS) {
+ statusCodeCounts[statusCode].increment();
+ } else {
+ counterFor(otherStatusCodeCounts, statusCode).increment();
+ }
 
  if (success) {
- successfulRequests.incrementAndGet();
+ successfulRequests.increment();
  } else {
- failedRequests.incrementAndGet();
+ failedRequests.increment();
  if (error != null) {
- errorCounts.computeIfAbsent(error, k -> new AtomicInteger(0)).incrementAndGet();
+ counterFor(errorCounts, error).increment();
+ }
+ }
  }
+
+ // Plain get first: computeIfAbsent can lock the bin even when the key is already present
+ private static <K> LongAdder counterFor(Map<K, LongAdder> counts, K key) {
+ LongAdder counter = counts.get(key);
+ return counter != null ? counter : counts.computeIfAbsent(key, k -> new LongAdder());
+ }
+
+ public void recordScheduled(boolean late) {
+ scheduledRequests.increment();
+ if (late) {
+ lateDispatches.increment();
  }
  }
 
+ public void recordDropped() {
+ droppedRequests.increment();
+ }
+
  public void reset() {
- totalRequests.set(0);
- successfulRequests.set(0);
- failedRequests.set(0);
- totalResponseTime.set(0);
- minResponseTime.set(Long.MAX_VALUE);
- maxResponseTime.set(0);
- responseTimes.clear();
- statusCodeCounts.clear();
+ totalRequests.reset();
+ successfulRequests.reset();
+ failedRequests.reset();
+ responseTimes.reset();
+ correctedResponseTimes.reset();
+ scheduledRequests.reset();
+ droppedRequests.reset();
+ lateDispatches.reset();
+ for (LongAdder counter : statusCodeCounts) {
+ counter.reset();
+ }
+ otherStatusCodeCounts.clear();
+ synchronized (windowLock) {
+ currentWindow.reset(System.nanoTime());
+ windowHistoryStart = 0;
+ windowHistorySize = 0;
+ Arrays.fill(windowHistory, null);
+ }
  errorCounts.clear();
  }
 
  // Getters for metrics
- public int getTotalRequests() { return totalRequests.get(); }
- public int getSuccessfulRequests() { return successfulRequests.get(); }
- public int getFailedRequests() { return failedRequests.get(); }
+ public int getTotalRequests() { return totalRequests.intValue(); }
+ public int getSuccessfulRequests() { return successfulRequests.intValue(); }
+ public int getFailedRequests() { return failedRequests.intValue(); }
  public double getSuccessRate() {
  int total = getTotalRequests();
  return total > 0 ? (double) getSuccessfulRequests() / total * 100 : 0;
   }
 
  public long getAverageResponseTime() {
- int total = getTotalRequests();
- return total > 0 ? totalResponseTime.get() / total : 0;
+ return toMillis(responseTimes.snapshot().getMeanMicros());
  }
 
- public long getMinResponseTime() {
- long min = minResponseTime.get();
- return min == Long.MAX_VALUE ? 0 : min;
+ public long getMinResponseTime() { return toMillis(responseTimes.snapshot().getMinMicros()); }
+
+ public long getMaxResponseTime() { return toMillis(responseTimes.snapshot().getMaxMicros()); }
+
+ public long getAverageCorrectedResponseTime() {
+ return toMillis(correctedResponseTimes.snapshot().getMeanMicros());
  }
 
- public long getMaxResponseTime() { return maxResponseTime.get(); }
+ public long getMaxCorrectedResponseTime() { return toMillis(correctedResponseTimes.snapshot().getMaxMicros()); }
+
+ // Mergeable copies for callers that aggregate several runs or need microsecond detail
+ public LatencyHistogram.Snapshot getResponseTimeSnapshot() { return responseTimes.snapshot(); }
+ public LatencyHistogram.Snapshot getCorrectedResponseTimeSnapshot() { return correctedResponseTimes.snapshot(); }
+
+ // Closes the current window and appends its summary to the history. Meant to be called about
+ // once a second by whoever drives the test; inFlight is the caller's count of outstanding requests
+ public WindowSample sampleWindow(int inFlight) {
+ synchronized (windowLock) {
+ long now = System.nanoTime();
+ Window closing = currentWindow;
+ spareWindow.reset(now);
+ currentWindow = spareWindow;
+ spareWindow = closing;
+
+ // Requests still finishing against the closed window are lost from the time series only,
+ // the cumulative counters above already have them
+ long elapsedMillis = Math.max(0, System.currentTimeMillis() - testStartTime);
+ WindowSample sample = closing.summarize(elapsedMillis, now, inFlight);
+
+ int index = (windowHistoryStart + windowHistorySize) % windowHistory.length;
+ windowHistory[index] = sample;
+ if (windowHistorySize < windowHistory.length) {
+ windowHistorySize++;
+ } else {
+ windowHistoryStart = (windowHistoryStart + 1) % windowHistory.length;
+ }
+ return sample;
+ }
+ }
+
+ // Oldest first
+ public List<WindowSample> getTimeSeries() {
+ synchronized (windowLock) {
+ List<WindowSample> series = new ArrayList<>(windowHistorySize);
+ for (int i = 0; i < windowHistorySize; i++) {
+ series.add(windowHistory[(windowHistoryStart + i) % windowHistory.length]);
+ }
+ return series;
+ }
+ }
+
+ public WindowSample getLatestWindow() {
+ synchronized (windowLock) {
+ return windowHistorySize == 0 ? null :
+ windowHistory[(windowHistoryStart + windowHistorySize - 1) % windowHistory.length];
+ }
+ }
+
+ public int getScheduledRequests() { return scheduledRequests.intValue(); }
+ public int getDroppedRequests() { return droppedRequests.intValue(); }
+ public int getLateDispatches() { return lateDispatches.intValue(); }
 
  public long getTestDuration() {
  return testEndTime > testStartTime ? testEndTime - testStartTime :
@@ -95,29 +230,35 @@ public class PerformanceMetrics {
  }
 
  public long getPercentile(double percentile) {
- if (responseTimes.isEmpty()) return 0;
-
- List<Long> sorted = new ArrayList<>(responseTimes);
- Collections.sort(sorted);
+ return toMillis(responseTimes.getValueAtPercentile(percentile));
+ }
 
- int index = (int) Math.ceil(sorted.size() * percentile / 100) - 1;
- index = Math.max(0, Math.min(index, sorted.size() - 1));
+ public long getCorrectedPercentile(double percentile) {
+ return toMillis(correctedResponseTimes.getValueAtPercentile(percentile));
+ }
 
- return sorted.get(index);
+ private static long toMillis(double micros) {
+ return Math.round(micros / 1000.0);
  }
 
  public Map<Integer, Integer> getStatusCodeDistribution() {
- Map<Integer, Integer> distribution = new HashMap<>();
- for (Map.Entry<Integer, AtomicInteger> entry : statusCodeCounts.entrySet()) {
- distribution.put(entry.getKey(), entry.getValue().get());
+ Map<Integer, Integer> distribution = new TreeMap<>();
+ for (int code = 0; code < STATUS_CODE_SLOTS; code++) {
+ int count = statusCodeCounts[code].intValue();
+ if (count > 0) {
+ distribution.put(code, count);
+ }
+ }
+ for (Map.Entry<Integer, LongAdder> entry : otherStatusCodeCounts.entrySet()) {
+ distribution.put(entry.getKey(), entry.getValue().intValue());
  }
  return distribution;
  }
 
  public Map<String, Integer> getErrorDistribution() {
  Map<String, Integer> distribution = new HashMap<>();
- for (Map.Entry<String, AtomicInteger> entry : errorCounts.entrySet()) {
- distribution.put(entry.getKey(), entry.getValue().get());
+ for (Map.Entry<String, LongAdder> entry : errorCounts.entrySet()) {
+ distribution.put(entry.getKey(), entry.getValue().intValue());
  }
  return distribution;
  }
@@ -134,7 +275,14 @@ public class PerformanceMetrics {
  getFailedRequests(), 100 - getSuccessRate()));
  report.append(String.format("Requests/Second: %.2f\n", getRequestsPerSecond()));
 
- report.append("\n=== Response Times ===\n");
+ if (getScheduledRequests() > 0) {
+ report.append("\n=== Arrival Schedule ===\n");
+ report.append(String.format("Scheduled: %d\n", getScheduledRequests()));
+ report.append(String.format("Dropped (max in-flight reached): %d\n", getDroppedRequests()));
+ report.append(String.format("Late Dispatches (>10 ms behind schedule): %d\n", getLateDispatches()));
+ }
+
+ report.append("\n=== Response Times (service time) ===\n");
  report.append(String.format("Average: %d ms\n", getAverageResponseTime()));
  report.append(String.format("Min: %d ms\n", getMinResponseTime()));
  report.append(String.format("Max: %d ms\n", getMaxResponseTime()));
@@ -142,6 +290,13 @@ public class PerformanceMetrics {
  report.append(String.format("95th Percentile: %d ms\n", getPercentile(95)));
  report.append(String.format("99th Percentile: %d ms\n", getPercentile(99)));
 
+ report.append("\n=== Response Times (from intended send time) ===\n");
+ report.append(String.format("Average: %d ms\n", getAverageCorrectedResponseTime()));
+ report.append(String.format("Max: %d ms\n", getMaxCorrectedResponseTime()));
+ report.append(String.format("50th Percentile: %d ms\n", getCorrectedPercentile(50)));
+ report.append(String.format("95th Percentile: %d ms\n", getCorrectedPercentile(95)));
+ report.append(String.format("99th Percentile: %d ms\n", getCorrectedPercentile(99)));
+
  report.append("\n=== Status Code Distribution ===\n");
  for (Map.Entry<Integer, Integer> entry : getStatusCodeDistribution().entrySet()) {
  report.append(String.format("Status %d: %d requests\n",
@@ -158,4 +313,78 @@ public class PerformanceMetrics {
 
  return report.toString();
  }
+
+ // One second's worth of results as shown on the live charts
+ public static class WindowSample {
+ private final long elapsedMillis;
+ private final long durationMillis;
+ private final int requests;
+ private final int errors;
+ private final int inFlight;
+ private final double p50Millis;
+ private final double p95Millis;
+ private final double p99Millis;
+
+ public WindowSample(long elapsedMillis, long durationMillis, int requests, int errors, int inFlight,
+ double p50Millis, double p95Millis, double p99Millis) {
+ this.elapsedMillis = elapsedMillis;
+ this.durationMillis = durationMillis;
+ this.requests = requests;
+ this.errors = errors;
+ this.inFlight = inFlight;
+ this.p50Millis = p50Millis;
+ this.p95Millis = p95Millis;
+ this.p99Millis = p99Millis;
+ }
+
+ public long getElapsedMillis() { return elapsedMillis; }
+ public long getDurationMillis() { return durationMillis; }
+ public int getRequests() { return requests; }
+ public int getErrors() { return errors; }
+ public int getInFlight() { return inFlight; }
+ public double getP50Millis() { return p50Millis; }
+ public double getP95Millis() { return p95Millis; }
+ public double getP99Millis() { return p99Millis; }
+
+ public double getRequestsPerSecond() {
+ return durationMillis > 0 ? requests * 1000.0 / durationMillis : 0;
+ }
+
+ public double getErrorRate() {
+ return requests > 0 ? (double) errors / requests * 100 : 0;
+ }
+ }
+
+ // Live accumulator for the window currently being filled; two are recycled between samples
+ private static class Window {
+ private final LatencyHistogram latency = new LatencyHistogram(
+ LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_MICROS, WINDOW_SIGNIFICANT_DIGITS);
+ private final LongAdder requests = new LongAdder();
+ private final LongAdder errors = new LongAdder();
+ private volatile long startNanos = System.nanoTime();
+
+ void record(long responseNanos, boolean success) {
+ latency.recordNanos(responseNanos);
+ requests.increment();
+ if (!success) {
+ errors.increment();
+ }
+ }
+
+ void reset(long now) {
+ latency.reset();
+ requests.reset();
+ errors.reset();
+ startNanos = now;
+ }
+
+ WindowSample summarize(long elapsedMillis, long now, int inFlight) {
+ LatencyHistogram.Snapshot snapshot = latency.snapshot();
+ return new WindowSample(elapsedMillis, TimeUnit.NANOSECONDS.toMillis(now - startNanos),
+ requests.intValue(), errors.intValue(), inFlight,
+ snapshot.getValueAtPercentile(50) / 1000.0,
+ snapshot.getValueAtPercentile(95) / 1000.0,
+ snapshot.getValueAtPercentile(99) / 1000.0);
+ }
+ }
 }
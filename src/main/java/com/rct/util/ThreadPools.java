@@ -0,0 +1,41 @@
+package com.rct.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor factory shared by the load and bulk runners. The build still targets Java 11,
+ * so virtual threads are looked up reflectively and only used when running on Java 21+.
+ */
+public class ThreadPools {
+ private static final Method VIRTUAL_EXECUTOR_FACTORY = findVirtualExecutorFactory();
+
+ public static boolean isVirtualThreadSupported() {
+  return VIRTUAL_EXECUTOR_FACTORY != null;
+ }
+
+ public static ExecutorService newExecutor(boolean virtualThreads, int platformPoolSize) {
+  if (virtualThreads) {
+   if (isVirtualThreadSupported()) {
+    try {
+     return (ExecutorService) VIRTUAL_EXECUTOR_FACTORY.invoke(null);
+    } catch (Exception e) {
+     LogManager.getInstance().log("Virtual threads unavailable, using platform threads: " + e.getMessage());
+    }
+   } else {
+    LogManager.getInstance().log("Virtual threads require Java 21+, using platform threads on Java "
+            + System.getProperty("java.version"));
+   }
+  }
+  return Executors.newFixedThreadPool(Math.max(1, platformPoolSize));
+ }
+
+ private static Method findVirtualExecutorFactory() {
+  try {
+   return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+  } catch (NoSuchMethodException e) {
+   return null;
+  }
+ }
+}
@@ -54,15 +54,32 @@ public class UITheme {
 
  // Helper method to get method icon with color
  public static String getMethodIcon(String method) {
- switch (method.toUpperCase()) {
- case "GET": return "<font color='" + ICON_GET + "'>🔽</font>";
- case "POST": return "<font color='" + ICON_POST + "'>📤</font>";
- case "PUT": return "<font color='" + ICON_PUT + "'>🔄</font>";
- case "DELETE": return "<font color='" + ICON_DELETE + "'>🗑️</font>";
- case "PATCH": return "<font color='" + ICON_PATCH + "'>✏️</font>";
- case "HEAD": return "<font color='" + ICON_HEAD + "'>ℹ️</font>";
- case "OPTIONS": return "<font color='" + ICON_OPTIONS + "'>⚙️</font>";
- default: return "<font color='" + ICON_DEFAULT + "'>🔘</font>";
+ return "<font color='" + getMethodColor(method) + "'>" + getMethodGlyph(method) + "</font>";
+ }
+
+ public static String getMethodGlyph(String method) {
+ switch (method == null ? "" : method.toUpperCase()) {
+ case "GET": return "🔽";
+ case "POST": return "📤";
+ case "PUT": return "🔄";
+ case "DELETE": return "🗑️";
+ case "PATCH": return "✏️";
+ case "HEAD": return "ℹ️";
+ case "OPTIONS": return "⚙️";
+ default: return "🔘";
+ }
+ }
+
+ public static String getMethodColor(String method) {
+ switch (method == null ? "" : method.toUpperCase()) {
+ case "GET": return ICON_GET;
+ case "POST": return ICON_POST;
+ case "PUT": return ICON_PUT;
+ case "DELETE": return ICON_DELETE;
+ case "PATCH": return ICON_PATCH;
+ case "HEAD": return ICON_HEAD;
+ case "OPTIONS": return ICON_OPTIONS;
+ default: return ICON_DEFAULT;
  }
  }
 }
@@ -0,0 +1,138 @@
+package com.rct.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A text with {{variable}} placeholders, parsed once into literal and variable segments.
+ * Compiled templates are cached by their source text, so resolving the same URL, header or body
+ * again only looks up the values and copies them into one exactly-sized StringBuilder.
+ */
+public final class VariableTemplate {
+ private static final int MAX_CACHED_TEMPLATES = 2048;
+ private static final Map<String, VariableTemplate> CACHE = new ConcurrentHashMap<>();
+
+ private final String source;
+ // Alternating parts: literals are stored as-is, variables by name
+ private final String[] segments;
+ private final boolean[] variable;
+ private final int literalLength;
+
+ private VariableTemplate(String source, List<String> segments, List<Boolean> variable) {
+  this.source = source;
+  this.segments = segments.toArray(new String[0]);
+  this.variable = new boolean[this.segments.length];
+  int length = 0;
+  for (int i = 0; i < this.segments.length; i++) {
+   this.variable[i] = variable.get(i);
+   if (!this.variable[i]) {
+    length += this.segments[i].length();
+   }
+  }
+  this.literalLength = length;
+ }
+
+ public static VariableTemplate compile(String text) {
+  VariableTemplate template = CACHE.get(text);
+  if (template != null) {
+   return template;
+  }
+  template = parse(text);
+  if (CACHE.size() >= MAX_CACHED_TEMPLATES) {
+   // Texts are usually a small, stable set per session; start over rather than track recency
+   CACHE.clear();
+  }
+  CACHE.put(text, template);
+  return template;
+ }
+
+ // Convenience for one-off resolution; text without placeholders is returned without compiling
+ public static String resolve(String text, Function<String, String> lookup) {
+  if (text == null || text.indexOf("{{") < 0) {
+   return text;
+  }
+  return compile(text).render(lookup);
+ }
+
+ public boolean hasVariables() {
+  for (boolean isVariable : variable) {
+   if (isVariable) return true;
+  }
+  return false;
+ }
+
+ public List<String> getVariableNames() {
+  List<String> names = new ArrayList<>();
+  for (int i = 0; i < segments.length; i++) {
+   if (variable[i] && !names.contains(segments[i])) {
+    names.add(segments[i]);
+   }
+  }
+  return Collections.unmodifiableList(names);
+ }
+
+ // Variables the lookup returns null for are left in place as {{name}}
+ public String render(Function<String, String> lookup) {
+  if (!hasVariables()) {
+   return source;
+  }
+
+  String[] values = new String[segments.length];
+  int length = literalLength;
+  for (int i = 0; i < segments.length; i++) {
+   if (variable[i]) {
+    String value = lookup.apply(segments[i]);
+    values[i] = value != null ? value : "{{" + segments[i] + "}}";
+    length += values[i].length();
+   }
+  }
+
+  StringBuilder result = new StringBuilder(length);
+  for (int i = 0; i < segments.length; i++) {
+   result.append(variable[i] ? values[i] : segments[i]);
+  }
+  return result.toString();
+ }
+
+ // Same grammar as the previous regex: "{{" followed by one or more characters other than '}', then "}}"
+ private static VariableTemplate parse(String text) {
+  List<String> segments = new ArrayList<>();
+  List<Boolean> variable = new ArrayList<>();
+  int literalStart = 0;
+  int position = 0;
+
+  while (true) {
+   int open = text.indexOf("{{", position);
+   if (open < 0) break;
+
+   int nameStart = open + 2;
+   int nameEnd = nameStart;
+   while (nameEnd < text.length() && text.charAt(nameEnd) != '}') {
+    nameEnd++;
+   }
+
+   if (nameEnd > nameStart && nameEnd + 1 < text.length() && text.charAt(nameEnd + 1) == '}') {
+    if (open > literalStart) {
+     segments.add(text.substring(literalStart, open));
+     variable.add(false);
+    }
+    segments.add(text.substring(nameStart, nameEnd));
+    variable.add(true);
+    literalStart = nameEnd + 2;
+    position = literalStart;
+   } else {
+    position = open + 1;
+   }
+  }
+
+  if (literalStart < text.length()) {
+   segments.add(text.substring(literalStart));
+   variable.add(false);
+  }
+  return new VariableTemplate(text, segments, variable);
+ }
+}